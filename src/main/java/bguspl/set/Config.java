@@ -6,7 +6,10 @@ import java.nio.file.Files;
 import java.nio.file.InvalidPathException;
 import java.nio.file.Paths;
 import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
 import java.util.Properties;
+import java.util.Random;
 import java.util.logging.Level;
 import java.util.logging.Logger;
 
@@ -21,6 +24,11 @@ public class Config {
     public final long randomSpinMin;
     public final long randomSpinMax;
 
+    /**
+     * The number of milliseconds between two samples of the thread profiler (0 or less disables profiling)
+     */
+    public final long profilerSampleMillis;
+
     /**
      * The number of features on the cards (e.g. shape, color etc.)
      */
@@ -36,6 +44,16 @@ public class Config {
      */
     public final int deckSize;
 
+    /**
+     * The maximal number of bytes to use for the precomputed set completion table (deckSize ^ 2 shorts)
+     */
+    public final long setTableMaxBytes;
+
+    /**
+     * The number of claim verdicts the dealer caches (0 or less disables the cache)
+     */
+    public final int verdictCacheSize;
+
     /**
      * The number of human players in the game.
      */
@@ -51,6 +69,86 @@ public class Config {
      */
     public final int players;
 
+    /**
+     * The seed of the dealer's random number generator
+     */
+    public final long seed;
+
+    /**
+     * The file game results are appended to (empty if results are not recorded)
+     */
+    public final String resultsFile;
+
+    /**
+     * The file the state of the game is saved to periodically, and resumed from if it exists (empty to disable)
+     */
+    public final String checkpointFile;
+
+    /**
+     * The number of milliseconds between two checkpoints of the game
+     */
+    public final long checkpointMillis;
+
+    /**
+     * The number of worker processes to play a tournament on (0 to play a single game in this process)
+     */
+    public final int workers;
+
+    /**
+     * The number of games of a tournament (played with consecutive seeds, starting from the seed)
+     */
+    public final int games;
+
+    /**
+     * The maximal number of milliseconds a worker may take to play a game of a tournament (0 or less for no limit)
+     */
+    public final long gameTimeoutMillis;
+
+    /**
+     * The number of concurrent tables (each with its own deck and players) to run
+     */
+    public final int tables;
+
+    /**
+     * The number of threads shared by the dealers when running more than one table
+     */
+    public final int dealerThreads;
+
+    /**
+     * The host name or address the network game server binds to
+     */
+    public final String networkHost;
+
+    /**
+     * The port of the network game server (0 for any free port, negative to disable the server)
+     */
+    public final int networkPort;
+
+    /**
+     * The size (in bytes) of the output buffer of each network connection
+     */
+    public final int networkBufferBytes;
+
+    /**
+     * The number of table state deltas kept for spectators (0 or less disables the spectator feed)
+     */
+    public final int spectatorLogSize;
+
+    /**
+     * The number of game events buffered for each subscriber of the event stream (more are dropped)
+     */
+    public final int eventBufferSize;
+
+    /**
+     * How computer players choose slots: random (random key presses) or solver (claims a legal set on the table)
+     */
+    public final String computerStrategy;
+
+    /**
+     * Whether a key press discards the oldest waiting action of the player when too many are waiting (dropped otherwise)
+     */
+    public final boolean overwriteActions;
+
     /**
      * Whether to print out hints to the console or not
      */
@@ -61,6 +159,11 @@ public class Config {
      */
     public final long turnTimeoutMillis;
 
+    /**
+     * When the dealer reshuffles besides the turn timeout: timeout, dead-table, extra-cards or partial
+     */
+    public final String reshufflePolicy;
+
     /**
      * The number of milliseconds the turn countdown warning should be displayed
      */
@@ -76,6 +179,11 @@ public class Config {
      */
     public final long pointFreezeMillis;
 
+    /**
+     * The maximal number of milliseconds to wait for the player threads to start, and to terminate at the end of a game
+     */
+    public final long shutdownTimeoutMillis;
+
     /**
      * The number of milliseconds to delay before removing/placing a card on the table
      */
@@ -86,12 +194,27 @@ public class Config {
      */
     public final long endGamePauseMillies;
 
+    /**
+     * The number of milliseconds a computer player waits between two simulated key presses
+     */
+    public final long computerKeyDelayMillis;
+
     /**
      * The names of the players to display on the screen
      * Note: if there are more players than names, the remaining players will be called "Player 3", "Player 4", etc.
      */
     public final String[] playerNames;
 
+    /**
+     * True iff the game runs without displaying anything (and without logging the user interface events)
+     */
+    public final boolean headless;
+
+    /**
+     * True iff the headless user interface keeps the latest scores and the winners
+     */
+    public final boolean headlessScores;
+
     /**
      * The number of rows in the grid of cards on the table (and on the screen)
      */
@@ -141,6 +264,19 @@ public class Config {
      */
     private final int[][] playerKeys;
 
+    /**
+     * The properties this configuration was built from (kept for deriving new configurations at runtime).
+     */
+    private final Properties properties;
+
+    /**
+     * The properties that may be changed while the game is running (see ConfigWatcher and GameControl).
+     */
+    public static final List<String> RELOADABLE_PROPERTIES = Collections.unmodifiableList(Arrays.asList(
+            "LogLevel", "LogFormat", "RandomSpinMin", "RandomSpinMax", "TurnTimeoutSeconds",
+            "TurnTimeoutWarningSeconds", "PointFreezeSeconds", "PenaltyFreezeSeconds", "TableDelaySeconds",
+            "ComputerKeyDelaySeconds"));
+
     /**
      * The default scan codes data (this is the same as in the default config.properties file)
      */
@@ -155,7 +291,7 @@ public class Config {
      * @param filename - the name of the configuration file.
      * @return - a properties object with the configuration file contents.
      */
-    private static Properties loadProperties(String filename, Logger logger) {
+    static Properties loadProperties(String filename, Logger logger) {
 
         Properties properties = new Properties();
 
@@ -176,46 +312,92 @@ public class Config {
         return properties;
     }
 
+    /**
+     * Converts a number of seconds (possibly fractional) to milliseconds, rounding to the nearest millisecond.
+     */
+    private static long secondsToMillis(String seconds) {
+        return Math.round(Double.parseDouble(seconds) * 1000.0);
+    }
+
     public Config(Logger logger, String configFilename) {
         this(logger, loadProperties(configFilename, logger));
     }
 
     public Config(Logger logger, Properties properties) {
+        this(logger, properties, true);
+    }
+
+    /**
+     * @param setUp - true to set up the logger and report the problems of the configuration, false for a snapshot
+     *              derived from a configuration that was already set up (see withOverrides).
+     */
+    private Config(Logger logger, Properties properties, boolean setUp) {
+
+        this.properties = new Properties();
+        this.properties.putAll(properties);
 
         // logger settings
-        Level logLevel = Level.parse(properties.getProperty("LogLevel", "ALL"));
-        String logFormat = properties.getProperty("LogFormat", "[%1$tT.%1$tL] [%2$-7s] %3$s%n");
-        Main.setLoggerLevelAndFormat(logger, logLevel, logFormat);
+        if (setUp) setUpLogger(logger, properties);
 
         // for debugging
         randomSpinMin = Long.parseLong(properties.getProperty("RandomSpinMin", "0"));
         randomSpinMax = Long.parseLong(properties.getProperty("RandomSpinMax", "0"));
-        if (randomSpinMax < randomSpinMin || randomSpinMin < 0)
+        if (setUp && (randomSpinMax < randomSpinMin || randomSpinMin < 0))
             logger.severe("invalid random spin cycles: max: " + randomSpinMax + " min: " + randomSpinMin);
+        profilerSampleMillis = Long.parseLong(properties.getProperty("ProfilerSampleMillis", "0"));
 
         // cards settings
         featureSize = Integer.parseInt(properties.getProperty("FeatureSize", "3"));
         featureCount = Integer.parseInt(properties.getProperty("FeatureCount", "4"));
         deckSize = (int) Math.pow(featureSize, featureCount);
+        setTableMaxBytes = Long.parseLong(properties.getProperty("SetTableMaxBytes", "1048576"));
+        verdictCacheSize = Integer.parseInt(properties.getProperty("VerdictCacheSize", "1024"));
 
         // gameplay settings
         humanPlayers = Integer.parseInt(properties.getProperty("HumanPlayers", "0"));
         computerPlayers = Integer.parseInt(properties.getProperty("ComputerPlayers", "2"));
         players = humanPlayers + computerPlayers;
-
+        // a missing seed is replaced by a random one (kept in the properties, so derived configurations share it)
+        long seed = Long.parseLong(properties.getProperty("Seed", "0"));
+        if (seed == 0) {
+            seed = new Random().nextLong();
+            this.properties.setProperty("Seed", Long.toString(seed));
+        }
+        this.seed = seed;
+        resultsFile = properties.getProperty("ResultsFile", "").trim();
+        checkpointFile = properties.getProperty("CheckpointFile", "").trim();
+        checkpointMillis = secondsToMillis(properties.getProperty("CheckpointSeconds", "5"));
+        workers = Integer.parseInt(properties.getProperty("Workers", "0"));
+        games = Integer.parseInt(properties.getProperty("Games", "1"));
+        gameTimeoutMillis = secondsToMillis(properties.getProperty("GameTimeoutSeconds", "600"));
+        tables = Integer.parseInt(properties.getProperty("Tables", "1"));
+        dealerThreads = Integer.parseInt(properties.getProperty("DealerThreads", "1"));
+        networkHost = properties.getProperty("NetworkHost", "localhost");
+        networkPort = Integer.parseInt(properties.getProperty("NetworkPort", "-1"));
+        networkBufferBytes = Integer.parseInt(properties.getProperty("NetworkBufferBytes", "65536"));
+        spectatorLogSize = Integer.parseInt(properties.getProperty("SpectatorLogSize", "1024"));
+        eventBufferSize = Integer.parseInt(properties.getProperty("EventBufferSize", "1024"));
+
+        computerStrategy = properties.getProperty("ComputerStrategy", "random").trim().toLowerCase();
+        overwriteActions = properties.getProperty("ActionOverflowPolicy", "drop").trim().equalsIgnoreCase("overwrite");
         hints = Boolean.parseBoolean(properties.getProperty("Hints", "false"));
-        turnTimeoutMillis = (long) (Double.parseDouble(properties.getProperty("TurnTimeoutSeconds", "60")) * 1000.0);
-        turnTimeoutWarningMillis = (long) (Double.parseDouble(properties.getProperty("TurnTimeoutWarningSeconds", "60")) * 1000.0);
-        pointFreezeMillis = (long) (Double.parseDouble(properties.getProperty("PointFreezeSeconds", "1")) * 1000.0);
-        penaltyFreezeMillis = (long) (Double.parseDouble(properties.getProperty("PenaltyFreezeSeconds", "3")) * 1000.0);
-        tableDelayMillis = (long) (Double.parseDouble(properties.getProperty("TableDelaySeconds", "0.1")) * 1000.0);
-        endGamePauseMillies = (long) (Double.parseDouble(properties.getProperty("EndGamePauseSeconds", "5")) * 1000.0);
+        turnTimeoutMillis = secondsToMillis(properties.getProperty("TurnTimeoutSeconds", "60"));
+        reshufflePolicy = properties.getProperty("ReshufflePolicy", "timeout").trim().toLowerCase();
+        turnTimeoutWarningMillis = secondsToMillis(properties.getProperty("TurnTimeoutWarningSeconds", "60"));
+        pointFreezeMillis = secondsToMillis(properties.getProperty("PointFreezeSeconds", "1"));
+        penaltyFreezeMillis = secondsToMillis(properties.getProperty("PenaltyFreezeSeconds", "3"));
+        tableDelayMillis = secondsToMillis(properties.getProperty("TableDelaySeconds", "0.1"));
+        shutdownTimeoutMillis = secondsToMillis(properties.getProperty("ShutdownTimeoutSeconds", "5"));
+        endGamePauseMillies = secondsToMillis(properties.getProperty("EndGamePauseSeconds", "5"));
+        computerKeyDelayMillis = secondsToMillis(properties.getProperty("ComputerKeyDelaySeconds", "0"));
 
         // ui settings
         String[] names = properties.getProperty("PlayerNames", "Player 1, Player 2").split(",");
         playerNames = new String[players];
         Arrays.setAll(playerNames, i -> i < names.length ? names[i].trim() : "Player " + (i + 1));
 
+        headless = properties.getProperty("UserInterface", "swing").trim().equalsIgnoreCase("headless");
+        headlessScores = Boolean.parseBoolean(properties.getProperty("HeadlessScores", "false"));
         rows = Integer.parseInt(properties.getProperty("Rows", "3"));
         columns = Integer.parseInt(properties.getProperty("Columns", "4"));
         tableSize = rows * columns;
@@ -233,7 +415,7 @@ public class Config {
             String playerKeysString = properties.getProperty("PlayerKeys" + (i + 1), defaultCodes);
             if (playerKeysString.length() > 0) {
                 String[] codes = playerKeysString.split(",");
-                if (codes.length != tableSize)
+                if (setUp && codes.length != tableSize)
                     logger.severe("warning: player " + (i + 1) + " keys (" + codes.length + ") mismatch table size (" + tableSize + ").");
                 for (int j = 0; j < Math.min(codes.length, tableSize); ++j) // parse the key codes string
                     playerKeys[i][j] = Integer.parseInt(codes[j]);
@@ -241,7 +423,67 @@ public class Config {
         }
     }
 
+    private static void setUpLogger(Logger logger, Properties properties) {
+        Level logLevel = Level.parse(properties.getProperty("LogLevel", "ALL"));
+        String logFormat = properties.getProperty("LogFormat", "[%1$tT.%1$tL] [%2$-7s] %3$s%n");
+        Main.setLoggerLevelAndFormat(logger, logLevel, logFormat);
+    }
+
     public int[] playerKeys(int player) {
         return playerKeys[player];
     }
+
+    /**
+     * @return - true iff the player is played on the local keyboard (a human player with key codes and a swing user
+     * interface).
+     */
+    public boolean hasLocalKeys(int player) {
+        if (headless || player >= humanPlayers) return false;
+        for (int code : playerKeys[player])
+            if (code != 0) return true;
+        return false;
+    }
+
+    /**
+     * @return - a hash of the parsed values defining the rules of the game (the cards, the table, the players and how
+     * the computer players and the dealer play). Timing, logging, display, network, performance and file settings are
+     * not part of it, so games that differ only in those (or in the seed) share the hash.
+     */
+    public long hash() {
+        String values = "FeatureSize=" + featureSize + "\nFeatureCount=" + featureCount
+                + "\nHumanPlayers=" + humanPlayers + "\nComputerPlayers=" + computerPlayers
+                + "\nComputerStrategy=" + computerStrategy + "\nReshufflePolicy=" + reshufflePolicy
+                + "\nOverwriteActions=" + overwriteActions + "\nRows=" + rows + "\nColumns=" + columns + '\n';
+        long hash = 0xcbf29ce484222325L; // 64 bit FNV-1a
+        for (int i = 0; i < values.length(); i++) {
+            hash ^= values.charAt(i);
+            hash *= 0x100000001b3L;
+        }
+        return hash;
+    }
+
+    /**
+     * Creates a new configuration with the given properties replacing the ones of this configuration.
+     * This configuration is left unchanged.
+     * Only RELOADABLE_PROPERTIES may be replaced (the others define the structure of the running game).
+     * The logger is only set up again if the overrides change its level or format.
+     *
+     * @param overrides - the properties to replace.
+     * @return - a new configuration object.
+     * @throws IllegalArgumentException - if a property cannot be changed at runtime, or has an invalid value.
+     */
+    public Config withOverrides(Logger logger, Properties overrides) {
+        for (String name : overrides.stringPropertyNames())
+            if (!RELOADABLE_PROPERTIES.contains(name))
+                throw new IllegalArgumentException("property " + name + " cannot be changed at runtime");
+        Properties merged = new Properties();
+        merged.putAll(properties);
+        merged.putAll(overrides);
+        Config config = new Config(logger, merged, false);
+        if (config.randomSpinMax < config.randomSpinMin || config.randomSpinMin < 0)
+            throw new IllegalArgumentException("invalid random spin cycles: max: " + config.randomSpinMax
+                    + " min: " + config.randomSpinMin);
+        if (overrides.containsKey("LogLevel") || overrides.containsKey("LogFormat")) setUpLogger(logger, merged);
+        return config;
+    }
 }
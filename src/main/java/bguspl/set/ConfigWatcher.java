@@ -0,0 +1,109 @@
+package bguspl.set;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.file.ClosedWatchServiceException;
+import java.nio.file.FileSystems;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardWatchEventKinds;
+import java.nio.file.WatchEvent;
+import java.nio.file.WatchKey;
+import java.nio.file.WatchService;
+import java.util.List;
+import java.util.Properties;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.logging.Logger;
+
+/**
+ * Watches the configuration file and publishes the runtime parameters (see Config.RELOADABLE_PROPERTIES) of every
+ * change to the running games. Each change creates a new Config object, so readers are never locked.
+ */
+public class ConfigWatcher {
+
+    private final Logger logger;
+    private final Path file;
+    private final WatchService watchService;
+    private final List<Env> envs = new CopyOnWriteArrayList<>();
+    private final Thread thread;
+
+    /**
+     * @param logger - the logger.
+     * @param file   - the configuration file.
+     * @throws IOException - if the directory of the file cannot be watched.
+     */
+    public ConfigWatcher(Logger logger, Path file) throws IOException {
+        this.logger = logger;
+        this.file = file.toAbsolutePath();
+        watchService = FileSystems.getDefault().newWatchService();
+        this.file.getParent().register(watchService,
+                StandardWatchEventKinds.ENTRY_MODIFY, StandardWatchEventKinds.ENTRY_CREATE);
+        thread = new Thread(this::watchLoop, "config-watcher");
+        thread.setDaemon(true);
+    }
+
+    /**
+     * Adds a game environment to publish the configuration changes to.
+     */
+    public void watch(Env env) {
+        envs.add(env);
+    }
+
+    public void start() {
+        logger.info("watching configuration file " + file);
+        thread.start();
+    }
+
+    public void close() {
+        try {
+            watchService.close();
+        } catch (IOException ignored) {}
+    }
+
+    private void watchLoop() {
+        try {
+            while (true) {
+                WatchKey key = watchService.take();
+                boolean changed = false;
+                for (WatchEvent<?> event : key.pollEvents())
+                    if (file.getFileName().equals(event.context())) changed = true;
+                key.reset();
+                if (!changed) continue;
+                try {
+                    reload();
+                } catch (RuntimeException e) {
+                    // a failed reload must not stop the watcher
+                    logger.severe("cannot reload the configuration file: " + e);
+                }
+            }
+        } catch (InterruptedException | ClosedWatchServiceException ignored) {}
+    }
+
+    /**
+     * Applies the reloadable properties of the configuration file to the watched games (the others are ignored).
+     * A file that cannot be read (e.g. while an editor replaces it) keeps the current configuration.
+     */
+    void reload() {
+        Properties properties = new Properties();
+        try (InputStream is = Files.newInputStream(file)) {
+            properties.load(is);
+        } catch (IOException | IllegalArgumentException e) {
+            logger.warning("cannot read the configuration file, keeping the current configuration: " + e);
+            return;
+        }
+        Properties overrides = new Properties();
+        for (String name : Config.RELOADABLE_PROPERTIES) {
+            String value = properties.getProperty(name);
+            if (value != null) overrides.setProperty(name, value);
+        }
+        try {
+            for (Env env : envs)
+                synchronized (env) {
+                    env.updateConfig(env.config.withOverrides(logger, overrides));
+                }
+            logger.info("configuration reloaded: " + overrides);
+        } catch (IllegalArgumentException e) {
+            logger.severe("invalid configuration file, keeping the current configuration: " + e.getMessage());
+        }
+    }
+}
@@ -5,14 +5,33 @@ import java.util.logging.Logger;
 public class Env {
 
     public final Logger logger;
-    public final Config config;
+    /**
+     * The current configuration. May be replaced at runtime by a new (immutable) configuration object.
+     */
+    public volatile Config config;
     public final UserInterface ui;
     public final Util util;
 
+    /**
+     * The event stream of the game.
+     */
+    public final GameEvents events;
+
     public Env(Logger logger, Config config, UserInterface ui, Util util) {
         this.logger = logger;
         this.config = config;
         this.ui = ui;
         this.util = util;
+        this.events = new GameEvents(logger, config.eventBufferSize);
+    }
+
+    /**
+     * Publishes a new configuration object to all the game components.
+     *
+     * @param config - the new configuration (should differ from the current one only in runtime parameters).
+     */
+    public synchronized void updateConfig(Config config) {
+        this.config = config;
+        if (util instanceof UtilImpl) ((UtilImpl) util).updateConfig(config);
     }
 }
@@ -0,0 +1,220 @@
+package bguspl.set;
+
+import bguspl.set.ex.Dealer;
+import bguspl.set.ex.Player;
+
+import javax.management.JMException;
+import javax.management.MBeanServer;
+import javax.management.ObjectName;
+import java.lang.management.ManagementFactory;
+import java.util.Properties;
+
+/**
+ * Exposes the live statistics of a running game via JMX and allows adjusting its timing parameters at runtime.
+ * Every change publishes a new Config object to the game environment (the current one is never modified).
+ */
+public class GameControl implements GameControlMBean {
+
+    private static final String OBJECT_NAME = "bguspl.set:type=GameControl";
+
+    private final Env env;
+    private final Dealer dealer;
+    private final Player[] players;
+
+    public GameControl(Env env, Dealer dealer, Player[] players) {
+        this.env = env;
+        this.dealer = dealer;
+        this.players = players;
+    }
+
+    /**
+     * Registers this object in the platform MBean server.
+     *
+     * @return - true iff the registration succeeded.
+     */
+    public boolean register() {
+        try {
+            MBeanServer server = ManagementFactory.getPlatformMBeanServer();
+            ObjectName name = new ObjectName(OBJECT_NAME);
+            if (server.isRegistered(name)) server.unregisterMBean(name);
+            server.registerMBean(this, name);
+            return true;
+        } catch (JMException e) {
+            env.logger.warning("cannot register game management bean: " + e.getMessage());
+            return false;
+        }
+    }
+
+    /**
+     * Removes this object from the platform MBean server.
+     */
+    public void unregister() {
+        try {
+            ManagementFactory.getPlatformMBeanServer().unregisterMBean(new ObjectName(OBJECT_NAME));
+        } catch (JMException ignored) {}
+    }
+
+    /**
+     * Publishes a new configuration with a single property replaced.
+     */
+    private void override(String key, String value) {
+        Properties overrides = new Properties();
+        overrides.setProperty(key, value);
+        synchronized (env) {
+            env.updateConfig(env.config.withOverrides(env.logger, overrides));
+        }
+        env.logger.info("management: " + key + " set to " + value);
+    }
+
+    private void overrideMillis(String key, long millies) {
+        if (millies < 0) throw new IllegalArgumentException(key + " cannot be negative");
+        override(key, Double.toString(millies / 1000.0));
+    }
+
+    @Override
+    public int getPlayers() {
+        return players.length;
+    }
+
+    @Override
+    public int[] getScores() {
+        return dealer.scoreboard().scores();
+    }
+
+    @Override
+    public int[] getLeaderboard() {
+        return dealer.scoreboard().leaderboard();
+    }
+
+    @Override
+    public long[] getDroppedActions() {
+        long[] drops = new long[players.length];
+        for (int i = 0; i < players.length; i++)
+            if (players[i] != null) drops[i] = players[i].droppedActions();
+        return drops;
+    }
+
+    @Override
+    public int getDeckRemaining() {
+        return dealer.deckRemaining();
+    }
+
+    @Override
+    public int getSetsCollected() {
+        return dealer.setsCollected();
+    }
+
+    @Override
+    public int getInvalidClaims() {
+        return dealer.invalidClaims();
+    }
+
+    @Override
+    public int getReshuffles() {
+        return dealer.reshuffles();
+    }
+
+    @Override
+    public long getVerdictCacheHits() {
+        return dealer.verdictCacheHits();
+    }
+
+    @Override
+    public long getVerdictCacheMisses() {
+        return dealer.verdictCacheMisses();
+    }
+
+    @Override
+    public long getUptimeMillis() {
+        return dealer.uptimeMillis();
+    }
+
+    @Override
+    public long getStartupMicros() {
+        return dealer.startupMicros();
+    }
+
+    @Override
+    public long getTableDelayMillis() {
+        return env.config.tableDelayMillis;
+    }
+
+    @Override
+    public void setTableDelayMillis(long millies) {
+        overrideMillis("TableDelaySeconds", millies);
+    }
+
+    @Override
+    public long getPointFreezeMillis() {
+        return env.config.pointFreezeMillis;
+    }
+
+    @Override
+    public void setPointFreezeMillis(long millies) {
+        overrideMillis("PointFreezeSeconds", millies);
+    }
+
+    @Override
+    public long getPenaltyFreezeMillis() {
+        return env.config.penaltyFreezeMillis;
+    }
+
+    @Override
+    public void setPenaltyFreezeMillis(long millies) {
+        overrideMillis("PenaltyFreezeSeconds", millies);
+    }
+
+    @Override
+    public long getTurnTimeoutMillis() {
+        return env.config.turnTimeoutMillis;
+    }
+
+    @Override
+    public void setTurnTimeoutMillis(long millies) {
+        overrideMillis("TurnTimeoutSeconds", millies);
+    }
+
+    @Override
+    public long getTurnTimeoutWarningMillis() {
+        return env.config.turnTimeoutWarningMillis;
+    }
+
+    @Override
+    public void setTurnTimeoutWarningMillis(long millies) {
+        overrideMillis("TurnTimeoutWarningSeconds", millies);
+    }
+
+    @Override
+    public long getComputerKeyDelayMillis() {
+        return env.config.computerKeyDelayMillis;
+    }
+
+    @Override
+    public void setComputerKeyDelayMillis(long millies) {
+        overrideMillis("ComputerKeyDelaySeconds", millies);
+    }
+
+    @Override
+    public long getRandomSpinMin() {
+        return env.config.randomSpinMin;
+    }
+
+    @Override
+    public void setRandomSpinMin(long cycles) {
+        if (cycles < 0 || cycles > env.config.randomSpinMax)
+            throw new IllegalArgumentException("invalid random spin min: " + cycles);
+        override("RandomSpinMin", Long.toString(cycles));
+    }
+
+    @Override
+    public long getRandomSpinMax() {
+        return env.config.randomSpinMax;
+    }
+
+    @Override
+    public void setRandomSpinMax(long cycles) {
+        if (cycles < env.config.randomSpinMin)
+            throw new IllegalArgumentException("invalid random spin max: " + cycles);
+        override("RandomSpinMax", Long.toString(cycles));
+    }
+}
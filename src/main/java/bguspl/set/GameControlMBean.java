@@ -0,0 +1,67 @@
+package bguspl.set;
+
+/**
+ * The JMX management interface of a running game (see GameControl).
+ */
+public interface GameControlMBean {
+
+    // live game statistics
+
+    int getPlayers();
+
+    int[] getScores();
+
+    int[] getLeaderboard();
+
+    long[] getDroppedActions();
+
+    int getDeckRemaining();
+
+    int getSetsCollected();
+
+    int getInvalidClaims();
+
+    int getReshuffles();
+
+    long getVerdictCacheHits();
+
+    long getVerdictCacheMisses();
+
+    long getUptimeMillis();
+
+    long getStartupMicros();
+
+    // timing parameters (safe to change while the game is running)
+
+    long getTableDelayMillis();
+
+    void setTableDelayMillis(long millies);
+
+    long getPointFreezeMillis();
+
+    void setPointFreezeMillis(long millies);
+
+    long getPenaltyFreezeMillis();
+
+    void setPenaltyFreezeMillis(long millies);
+
+    long getTurnTimeoutMillis();
+
+    void setTurnTimeoutMillis(long millies);
+
+    long getTurnTimeoutWarningMillis();
+
+    void setTurnTimeoutWarningMillis(long millies);
+
+    long getComputerKeyDelayMillis();
+
+    void setComputerKeyDelayMillis(long millies);
+
+    long getRandomSpinMin();
+
+    void setRandomSpinMin(long cycles);
+
+    long getRandomSpinMax();
+
+    void setRandomSpinMax(long cycles);
+}
@@ -0,0 +1,93 @@
+package bguspl.set;
+
+/**
+ * An event of a game, published to the subscribers of the game's event stream (see GameEvents).
+ * Events are immutable. The fields that do not apply to the type of an event are -1.
+ */
+public class GameEvent {
+
+    public enum Type {
+        /**
+         * A card was placed on a slot (card, slot).
+         */
+        CARD_PLACED,
+        /**
+         * The card on a slot was removed (card, slot).
+         */
+        CARD_REMOVED,
+        /**
+         * A player placed (value 1) or removed (value 0) a token (player, slot, value).
+         */
+        TOKEN_TOGGLED,
+        /**
+         * A player claimed the cards with its tokens are a set (player, value is the number of tokens).
+         */
+        CLAIM_SUBMITTED,
+        /**
+         * The dealer judged a claim: legal (value 1) or not (value 0) (player, value).
+         */
+        VERDICT,
+        /**
+         * The score of a player changed (player, value is the new score).
+         */
+        SCORE_CHANGED,
+        /**
+         * The cards on the table were returned to the deck (value is the number of cards).
+         */
+        RESHUFFLE
+    }
+
+    public final Type type;
+
+    /**
+     * The time of the event (System.nanoTime).
+     */
+    public final long nanos;
+
+    public final int player;
+    public final int slot;
+    public final int card;
+    public final int value;
+
+    private GameEvent(Type type, int player, int slot, int card, int value) {
+        this.type = type;
+        this.nanos = System.nanoTime();
+        this.player = player;
+        this.slot = slot;
+        this.card = card;
+        this.value = value;
+    }
+
+    public static GameEvent cardPlaced(int card, int slot) {
+        return new GameEvent(Type.CARD_PLACED, -1, slot, card, -1);
+    }
+
+    public static GameEvent cardRemoved(int card, int slot) {
+        return new GameEvent(Type.CARD_REMOVED, -1, slot, card, -1);
+    }
+
+    public static GameEvent tokenToggled(int player, int slot, boolean placed) {
+        return new GameEvent(Type.TOKEN_TOGGLED, player, slot, -1, placed ? 1 : 0);
+    }
+
+    public static GameEvent claimSubmitted(int player, int tokens) {
+        return new GameEvent(Type.CLAIM_SUBMITTED, player, -1, -1, tokens);
+    }
+
+    public static GameEvent verdict(int player, boolean legal) {
+        return new GameEvent(Type.VERDICT, player, -1, -1, legal ? 1 : 0);
+    }
+
+    public static GameEvent scoreChanged(int player, int score) {
+        return new GameEvent(Type.SCORE_CHANGED, player, -1, -1, score);
+    }
+
+    public static GameEvent reshuffle(int cards) {
+        return new GameEvent(Type.RESHUFFLE, -1, -1, -1, cards);
+    }
+
+    @Override
+    public String toString() {
+        return type + "(player=" + player + ", slot=" + slot + ", card=" + card + ", value=" + value + ")";
+    }
+}
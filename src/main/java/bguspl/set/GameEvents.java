@@ -0,0 +1,266 @@
+package bguspl.set;
+
+import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.logging.Logger;
+
+/**
+ * The event stream of a game: a publisher of GameEvents with the same contract as java.util.concurrent.Flow (which
+ * is not available in Java 8), so consumers (metrics, journals, user interfaces, spectators) do not have to be wired
+ * through the UserInterface.
+ * Every subscription has its own bounded buffer and demand (see Subscription.request). Publishing only adds the event
+ * to the buffer of each subscription and never blocks: when a buffer is full the event is dropped for that subscriber
+ * (and counted), so a slow consumer cannot slow down the dealer or the players. Events are delivered on a pool of
+ * delivery threads, in order, and never concurrently to the same subscriber.
+ */
+public class GameEvents {
+
+    /**
+     * Receives the events of a subscription (see java.util.concurrent.Flow.Subscriber).
+     */
+    public interface Subscriber {
+
+        /**
+         * Called once, before any event. No event is delivered until events are requested.
+         */
+        void onSubscribe(Subscription subscription);
+
+        void onNext(GameEvent event);
+
+        /**
+         * Called when onNext threw. The subscription is cancelled.
+         */
+        default void onError(Throwable throwable) {
+        }
+
+        /**
+         * Called after the last event, once the stream is closed.
+         */
+        default void onComplete() {
+        }
+    }
+
+    /**
+     * The link between the stream and a subscriber (see java.util.concurrent.Flow.Subscription).
+     */
+    public interface Subscription {
+
+        /**
+         * Adds n to the number of events the subscriber is ready to receive.
+         */
+        void request(long n);
+
+        /**
+         * Stops the delivery of events (events already being delivered may still arrive).
+         */
+        void cancel();
+
+        /**
+         * @return - the number of events dropped because the buffer of the subscription was full.
+         */
+        long dropped();
+    }
+
+    private final Logger logger;
+
+    private final int bufferSize;
+
+    private final List<Delivery> subscriptions = new CopyOnWriteArrayList<>();
+
+    /**
+     * The delivery threads (created with the first subscription, guarded by this). Idle threads end after a minute.
+     */
+    private ExecutorService executor;
+
+    private volatile boolean closed;
+
+    /**
+     * @param logger     - the logger.
+     * @param bufferSize - the number of events buffered for each subscriber.
+     */
+    public GameEvents(Logger logger, int bufferSize) {
+        this.logger = logger;
+        this.bufferSize = Math.max(1, bufferSize);
+    }
+
+    /**
+     * Adds a subscriber. It receives the events published from now on (as far as it requests them).
+     */
+    public void subscribe(Subscriber subscriber) {
+        Delivery delivery = new Delivery(subscriber, executor());
+        subscriber.onSubscribe(delivery);
+        subscriptions.add(delivery);
+        if (closed) delivery.complete();
+    }
+
+    /**
+     * @return - true iff anyone is subscribed (publishers may skip creating events otherwise).
+     */
+    public boolean hasSubscribers() {
+        return !subscriptions.isEmpty();
+    }
+
+    /**
+     * Publishes an event to all the subscribers (without waiting for them).
+     */
+    public void publish(GameEvent event) {
+        for (Delivery delivery : subscriptions)
+            delivery.offer(event);
+    }
+
+    // the events of the game (only created if anyone is subscribed)
+
+    public void cardPlaced(int card, int slot) {
+        if (hasSubscribers()) publish(GameEvent.cardPlaced(card, slot));
+    }
+
+    public void cardRemoved(int card, int slot) {
+        if (hasSubscribers()) publish(GameEvent.cardRemoved(card, slot));
+    }
+
+    public void tokenToggled(int player, int slot, boolean placed) {
+        if (hasSubscribers()) publish(GameEvent.tokenToggled(player, slot, placed));
+    }
+
+    public void claimSubmitted(int player, int tokens) {
+        if (hasSubscribers()) publish(GameEvent.claimSubmitted(player, tokens));
+    }
+
+    public void verdict(int player, boolean legal) {
+        if (hasSubscribers()) publish(GameEvent.verdict(player, legal));
+    }
+
+    public void scoreChanged(int player, int score) {
+        if (hasSubscribers()) publish(GameEvent.scoreChanged(player, score));
+    }
+
+    public void reshuffle(int cards) {
+        if (hasSubscribers()) publish(GameEvent.reshuffle(cards));
+    }
+
+    /**
+     * Completes all the subscriptions (each one after its buffered events are delivered). The idle delivery threads
+     * (daemons) end by themselves.
+     */
+    public void close() {
+        closed = true;
+        for (Delivery delivery : subscriptions)
+            delivery.complete();
+        subscriptions.clear();
+    }
+
+    private synchronized ExecutorService executor() {
+        if (executor == null) {
+            AtomicInteger threads = new AtomicInteger();
+            ThreadFactory factory = runnable -> {
+                Thread thread = new Thread(runnable, "events-" + threads.getAndIncrement());
+                thread.setDaemon(true);
+                return thread;
+            };
+            executor = Executors.newCachedThreadPool(factory);
+        }
+        return executor;
+    }
+
+    /**
+     * A subscription: the buffered events of a subscriber, its demand, and the drain task that delivers them.
+     */
+    private class Delivery implements Subscription, Runnable {
+
+        private final Subscriber subscriber;
+        private final ExecutorService executor;
+        private final ArrayBlockingQueue<GameEvent> buffer;
+        private final AtomicLong demand = new AtomicLong();
+        private final AtomicLong dropped = new AtomicLong();
+
+        /**
+         * The number of signals since the drain task last checked for work (the task is scheduled by the 0 to 1
+         * transition only, so it never runs concurrently with itself).
+         */
+        private final AtomicInteger signals = new AtomicInteger();
+
+        private volatile boolean cancelled;
+        private volatile boolean completed;
+
+        Delivery(Subscriber subscriber, ExecutorService executor) {
+            this.subscriber = subscriber;
+            this.executor = executor;
+            this.buffer = new ArrayBlockingQueue<>(bufferSize);
+        }
+
+        void offer(GameEvent event) {
+            if (cancelled) return;
+            if (buffer.offer(event)) signal();
+            else dropped.incrementAndGet();
+        }
+
+        void complete() {
+            completed = true;
+            signal();
+        }
+
+        @Override
+        public void request(long n) {
+            if (n <= 0) {
+                cancel();
+                subscriber.onError(new IllegalArgumentException("non-positive request: " + n));
+                return;
+            }
+            demand.accumulateAndGet(n, (current, added) -> current + added < 0 ? Long.MAX_VALUE : current + added);
+            signal();
+        }
+
+        @Override
+        public void cancel() {
+            cancelled = true;
+            subscriptions.remove(this);
+            buffer.clear();
+        }
+
+        @Override
+        public long dropped() {
+            return dropped.get();
+        }
+
+        private void signal() {
+            if (signals.getAndIncrement() == 0)
+                executor.execute(this);
+        }
+
+        /**
+         * Delivers the buffered events as far as the demand allows, then completes the subscriber if the stream is
+         * closed and the buffer is empty.
+         */
+        @Override
+        public void run() {
+            int missed = 1;
+            while (true) {
+                while (!cancelled && demand.get() > 0) {
+                    GameEvent event = buffer.poll();
+                    if (event == null) break;
+                    if (demand.get() != Long.MAX_VALUE) demand.decrementAndGet();
+                    try {
+                        subscriber.onNext(event);
+                    } catch (RuntimeException e) {
+                        logger.warning("event subscriber failed: " + e);
+                        cancel();
+                        subscriber.onError(e);
+                    }
+                }
+                if (completed && !cancelled && buffer.isEmpty()) {
+                    cancelled = true;
+                    subscriptions.remove(this);
+                    subscriber.onComplete();
+                }
+                missed = signals.addAndGet(-missed);
+                if (missed == 0) return;
+            }
+        }
+    }
+}
@@ -0,0 +1,60 @@
+package bguspl.set;
+
+/**
+ * The outcome of a single game (see ResultsStore).
+ */
+public class GameResult {
+
+    /**
+     * The seed of the dealer's random number generator.
+     */
+    public final long seed;
+
+    /**
+     * The hash of the game configuration (see Config.hash).
+     */
+    public final long configHash;
+
+    /**
+     * The time the game ended (milliseconds since the epoch).
+     */
+    public final long endTime;
+
+    /**
+     * The duration of the game in milliseconds.
+     */
+    public final long durationMillis;
+
+    /**
+     * Per player data (indexed by player id).
+     */
+    public final String[] strategies;
+    public final int[] scores;
+    public final int[] claims;
+    public final int[] penalties;
+
+    public GameResult(long seed, long configHash, long endTime, long durationMillis, String[] strategies,
+                      int[] scores, int[] claims, int[] penalties) {
+        this.seed = seed;
+        this.configHash = configHash;
+        this.endTime = endTime;
+        this.durationMillis = durationMillis;
+        this.strategies = strategies;
+        this.scores = scores;
+        this.claims = claims;
+        this.penalties = penalties;
+    }
+
+    public int players() {
+        return scores.length;
+    }
+
+    /**
+     * @return - true iff the player has the highest score (possibly tied with others).
+     */
+    public boolean isWinner(int player) {
+        for (int score : scores)
+            if (score > scores[player]) return false;
+        return true;
+    }
+}
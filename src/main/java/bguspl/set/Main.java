@@ -1,15 +1,22 @@
 package bguspl.set;
 
 import bguspl.set.ex.Dealer;
+import bguspl.set.ex.DealerPool;
+import bguspl.set.ex.GameCheckpoint;
 import bguspl.set.ex.Player;
 import bguspl.set.ex.Table;
 
 import java.io.File;
 import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
 import java.text.SimpleDateFormat;
+import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.Calendar;
 import java.util.Date;
+import java.util.List;
 import java.util.logging.*;
 
 /**
@@ -18,6 +25,9 @@ import java.util.logging.*;
 public class Main {
 
     private static Dealer dealer;
+    private static DealerPool dealerPool;
+    private static ConfigWatcher configWatcher;
+    private static final List<Dealer> dealers = new ArrayList<>();
     private static Thread mainThread;
 
     private static boolean xButtonPressed = false;
@@ -27,13 +37,14 @@ public class Main {
         if (logger != null) logger.severe("exit button pressed");
         xButtonPressed = true;
         if (dealer != null) dealer.terminate();
+        if (dealerPool != null) dealerPool.terminate();
         mainThread.join();
     }
 
     /**
      * The game's main function. Creates all data structures and initializes the threads.
      *
-     * @param args - unused.
+     * @param args - unused (or "--worker" and the configuration file, when started by a tournament coordinator).
      */
     public static void main(String[] args) {
 
@@ -41,48 +52,195 @@ public class Main {
 
         // create the game environment objects
         logger = initLogger();
+        if (args.length > 0 && args[0].equals(TournamentWorker.ARGUMENT)) {
+            TournamentWorker.run(logger, args.length > 1 ? args[1] : "config.properties");
+            return;
+        }
         ThreadLogger.logStart(logger, Thread.currentThread().getName());
         Config config = new Config(logger, "config.properties");
+        if (config.workers > 0) {
+            runTournament(config);
+            return;
+        }
         Util util = new UtilImpl(config);
+        if (config.profilerSampleMillis > 0) ThreadLogger.startProfiling(config.profilerSampleMillis);
 
         Player[] players = new Player[config.players];
         UserInterface ui = null;
-        try {
-            ui = new UserInterfaceSwing(logger, config, players);
-        } catch (UnsupportedOperationException | IllegalArgumentException e) {
-            logger.severe("error creating swing user interface: " + e.getMessage());
-            logger.severe("will try to run without user interface");
+        if (config.headless) {
+            ui = new UserInterfaceHeadless(config);
             if (config.humanPlayers > 0)
                 logger.severe("warning: running with human players with no user interface");
+        } else {
+            try {
+                ui = new UserInterfaceSwing(logger, config, players);
+            } catch (UnsupportedOperationException | IllegalArgumentException e) {
+                logger.severe("error creating swing user interface: " + e.getMessage());
+                logger.severe("will try to run without user interface");
+                if (config.humanPlayers > 0)
+                    logger.severe("warning: running with human players with no user interface");
+            }
+            ui = new UserInterfaceDecorator(logger, util, ui);
+        }
+        if (config.networkPort >= 0) {
+            try {
+                SpectatorFeed feed = config.spectatorLogSize > 0 ? new SpectatorFeed(config, ui) : null;
+                if (feed != null) ui = feed;
+                NetworkServer server = new NetworkServer(logger, config, players, ui, feed);
+                server.start();
+                ui = server;
+            } catch (IOException e) {
+                logger.severe("cannot start the network server: " + e.getMessage());
+            }
         }
-        ui = new UserInterfaceDecorator(logger, util, ui);
 
         Env env = new Env(logger, config, ui, util);
 
         // create the game entities
         Table table = new Table(env);
         dealer = new Dealer(env, table, players);
+        dealers.add(dealer);
         for (int i = 0; i < players.length; i++)
             players[i] = new Player(env, dealer, table, i, i < env.config.humanPlayers);
 
-        // start the dealer thread
-        ThreadLogger dealerThread = new ThreadLogger(dealer, "dealer", logger);
-        dealerThread.startWithLog();
+        // resume the game from its checkpoint (if there is one) and save it periodically
+        if (!config.checkpointFile.isEmpty()) {
+            if (config.tables > 1) logger.warning("checkpoints are only supported with a single table");
+            else resumeAndCheckpoint(env, dealer);
+        }
+
+        // publish the runtime parameters of every change to the configuration file
+        configWatcher = startConfigWatcher(env);
+
+        // expose the game statistics and runtime parameters via JMX
+        GameControl gameControl = new GameControl(env, dealer, players);
+        gameControl.register();
 
         try {
+            if (config.tables > 1) runTables(env, table);
+            else {
+                // start the dealer thread
+                ThreadLogger dealerThread = new ThreadLogger(dealer, "dealer", logger);
+                dealerThread.startWithLog();
+                dealerThread.joinWithLog();
+            }
+
             // shutdown stuff
-            dealerThread.joinWithLog();
-            if (!xButtonPressed && config.endGamePauseMillies > 0) Thread.sleep(config.endGamePauseMillies);
+            ThreadLogger.stopProfiling(logger);
+            if (!config.resultsFile.isEmpty()) recordResults(config);
+            // nobody is watching a headless game, so it ends right away
+            if (!xButtonPressed && !config.headless && config.endGamePauseMillies > 0)
+                Thread.sleep(config.endGamePauseMillies);
         } catch (InterruptedException ignored) {
         } finally {
             logger.severe("thanks for playing... it was fun!");
-            System.out.println("Thanks for playing... it was fun!");
+            if (!config.headless) System.out.println("Thanks for playing... it was fun!");
             ThreadLogger.logStop(logger, Thread.currentThread().getName());
+            gameControl.unregister();
+            if (configWatcher != null) configWatcher.close();
+            env.events.close();
             if (!xButtonPressed) env.ui.dispose();
             for (Handler h : logger.getHandlers()) h.flush();
         }
     }
 
+    /**
+     * Runs config.tables concurrent games on a shared pool of dealer threads. The first table is the one created by
+     * main (displayed, with the human players), the others get computer players only and a headless user interface.
+     * Only the first table is exposed via JMX and the network server, and no table is checkpointed; changes to the
+     * configuration file do reach every table. A dealer sleeps on its pool thread during its table delays, so the
+     * tables only run in parallel up to config.dealerThreads.
+     */
+    private static void runTables(Env env, Table table) throws InterruptedException {
+        Config config = env.config;
+        dealerPool = new DealerPool(logger, config.dealerThreads, config.tables);
+        dealerPool.submit(dealer, table);
+        List<Env> tableEnvs = new ArrayList<>();
+        try {
+            for (int t = 1; t < config.tables; t++) {
+                Env tableEnv = new Env(logger, config, new UserInterfaceHeadless(config), env.util);
+                tableEnvs.add(tableEnv);
+                Table otherTable = new Table(tableEnv);
+                Player[] otherPlayers = new Player[config.players];
+                if (configWatcher != null) configWatcher.watch(tableEnv);
+                Dealer otherDealer = new Dealer(tableEnv, otherTable, otherPlayers, config.seed + t);
+                dealers.add(otherDealer);
+                for (int i = 0; i < otherPlayers.length; i++)
+                    otherPlayers[i] = new Player(tableEnv, otherDealer, otherTable, i, false);
+                dealerPool.submit(otherDealer, otherTable);
+            }
+            dealerPool.awaitTermination();
+        } finally {
+            // the event stream of the first table is closed by main
+            for (Env tableEnv : tableEnvs) tableEnv.events.close();
+        }
+    }
+
+    /**
+     * Restores the game from the checkpoint file if it exists, and makes the dealer save the game to it periodically.
+     */
+    private static void resumeAndCheckpoint(Env env, Dealer dealer) {
+        GameCheckpoint checkpoint = new GameCheckpoint(env, Paths.get(env.config.checkpointFile));
+        try {
+            if (checkpoint.restore(dealer)) logger.severe("resumed the game from " + env.config.checkpointFile);
+        } catch (IOException e) {
+            logger.severe("cannot resume the game from " + env.config.checkpointFile + ": " + e.getMessage());
+        }
+        dealer.setCheckpoint(checkpoint);
+    }
+
+    /**
+     * Plays a tournament on worker processes (see TournamentCoordinator) and records its results.
+     */
+    private static void runTournament(Config config) {
+        if (config.humanPlayers > 0) logger.severe("warning: tournaments are played by computer players only");
+        try {
+            List<GameResult> results = new TournamentCoordinator(logger, config, "config.properties").run();
+            if (!config.resultsFile.isEmpty()) recordResults(config, results);
+        } catch (InterruptedException ignored) {
+        } finally {
+            ThreadLogger.logStop(logger, Thread.currentThread().getName());
+            for (Handler h : logger.getHandlers()) h.flush();
+        }
+    }
+
+    /**
+     * Appends the results of all the games to the results file.
+     */
+    private static void recordResults(Config config) {
+        List<GameResult> results = new ArrayList<>();
+        for (Dealer d : dealers) results.add(d.result());
+        recordResults(config, results);
+    }
+
+    private static void recordResults(Config config, List<GameResult> results) {
+        try (ResultsStore store = new ResultsStore(Paths.get(config.resultsFile), 1 << 16)) {
+            for (GameResult result : results) store.append(result);
+            logger.info("recorded " + results.size() + " game result(s) in " + config.resultsFile);
+        } catch (IOException e) {
+            logger.severe("cannot record the game results: " + e.getMessage());
+        }
+    }
+
+    /**
+     * Starts watching the configuration file in the working directory (if there is one).
+     *
+     * @return - the watcher, or null if there is nothing to watch.
+     */
+    private static ConfigWatcher startConfigWatcher(Env env) {
+        Path file = Paths.get("config.properties");
+        if (!Files.isRegularFile(file)) return null;
+        try {
+            ConfigWatcher watcher = new ConfigWatcher(logger, file);
+            watcher.watch(env);
+            watcher.start();
+            return watcher;
+        } catch (IOException e) {
+            logger.warning("cannot watch the configuration file: " + e.getMessage());
+            return null;
+        }
+    }
+
     private static Logger initLogger() {
 
         //just to make our log file nicer :)
@@ -0,0 +1,104 @@
+package bguspl.set;
+
+/**
+ * The binary protocol of the network game server (see NetworkServer).
+ * Every message is a single type byte followed by a fixed size big-endian payload (except for WINNER, whose payload
+ * is a count followed by that many player ids). Player ids, slots, cards and counts are sent as ints.
+ */
+public final class NetworkProtocol {
+
+    private NetworkProtocol() {}
+
+    // client to server messages
+
+    /**
+     * Binds the connection to a player: [player (int)]. Connections that never join only receive the game updates.
+     * Only human players that are not played on the server's keyboard can be joined, by one connection each (other
+     * joins are ignored).
+     */
+    public static final byte JOIN = 0x01;
+
+    /**
+     * A key press of the joined player: [slot (int)].
+     */
+    public static final byte KEY = 0x02;
+
+    /**
+     * Switches the connection to the spectator feed: no payload. From then on the connection receives the frames
+     * of the SpectatorFeed (a snapshot followed by deltas) instead of the messages below.
+     */
+    public static final byte SPECTATE = 0x03;
+
+    // server to client messages
+
+    /**
+     * [slot (int)] [card (int)]
+     */
+    public static final byte PLACE_CARD = 0x10;
+
+    /**
+     * [slot (int)]
+     */
+    public static final byte REMOVE_CARD = 0x11;
+
+    /**
+     * [player (int)] [slot (int)]
+     */
+    public static final byte PLACE_TOKEN = 0x12;
+
+    /**
+     * [player (int)] [slot (int)]
+     */
+    public static final byte REMOVE_TOKEN = 0x13;
+
+    /**
+     * [slot (int)]
+     */
+    public static final byte REMOVE_SLOT_TOKENS = 0x14;
+
+    /**
+     * No payload.
+     */
+    public static final byte REMOVE_ALL_TOKENS = 0x15;
+
+    /**
+     * [millies (long)] [warn (0 or 1)]
+     */
+    public static final byte COUNTDOWN = 0x16;
+
+    /**
+     * [millies (long)]
+     */
+    public static final byte ELAPSED = 0x17;
+
+    /**
+     * [player (int)] [millies (long)]
+     */
+    public static final byte FREEZE = 0x18;
+
+    /**
+     * [player (int)] [score (int)]
+     */
+    public static final byte SCORE = 0x19;
+
+    /**
+     * [count (int)] [player (int)] * count
+     */
+    public static final byte WINNER = 0x1A;
+
+    /**
+     * @param type - a client to server message type.
+     * @return - the payload length of the message, or -1 if the type is unknown.
+     */
+    public static int clientPayloadLength(byte type) {
+        switch (type) {
+            case JOIN:
+            case KEY:
+                return Integer.BYTES;
+            case SPECTATE:
+                return 0;
+            default:
+                return -1;
+        }
+    }
+}
@@ -0,0 +1,428 @@
+package bguspl.set;
+
+import bguspl.set.ex.Player;
+
+import java.io.IOException;
+import java.net.InetSocketAddress;
+import java.nio.ByteBuffer;
+import java.nio.channels.ClosedSelectorException;
+import java.nio.channels.SelectionKey;
+import java.nio.channels.Selector;
+import java.nio.channels.ServerSocketChannel;
+import java.nio.channels.SocketChannel;
+import java.util.ArrayDeque;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.logging.Logger;
+
+import static bguspl.set.NetworkProtocol.*;
+
+/**
+ * A non-blocking (selector based) game server for remote players, using the protocol in NetworkProtocol.
+ * Key presses of joined connections are dispatched to the players, and every user interface event is broadcast to
+ * all the connections (and passed on to the decorated user interface). Each connection has a bounded output buffer,
+ * and connections that fall too far behind are disconnected so they cannot slow the game down.
+ */
+public class NetworkServer implements UserInterface {
+
+    private final Logger logger;
+    private final Config config;
+    private final Player[] players;
+    private final UserInterface ui;
+    private final SpectatorFeed feed;
+    private final AtomicInteger spectators = new AtomicInteger();
+
+    private final Selector selector;
+    private final ServerSocketChannel serverChannel;
+    private final Thread selectorThread;
+    private final List<Connection> connections = new CopyOnWriteArrayList<>();
+
+    /**
+     * The connection joined as each player (null if none, used by the selector thread only).
+     */
+    private final Connection[] joined;
+
+    /**
+     * Connections that have new output, waiting for the selector thread to register their write interest.
+     */
+    private final Queue<Connection> pendingWrites = new ConcurrentLinkedQueue<>();
+
+    /**
+     * The buffer used to encode a message before copying it to the connections (guarded by this), large enough for
+     * the longest message (WINNER with all the players).
+     */
+    private final ByteBuffer message;
+
+    private volatile boolean closed;
+
+    private class Connection {
+        final SocketChannel channel;
+        final ByteBuffer in = ByteBuffer.allocate(64);
+        final ByteBuffer out; // guarded by this connection, always in write mode
+        int player = -1;
+        SelectionKey key;
+        boolean overflow; // guarded by this connection
+        volatile SpectatorFeed.Spectator spectator;
+        final ArrayDeque<ByteBuffer> frames = new ArrayDeque<>(); // spectator frames not fully written yet
+
+        Connection(SocketChannel channel) {
+            this.channel = channel;
+            this.out = ByteBuffer.allocateDirect(config.networkBufferBytes);
+        }
+    }
+
+    /**
+     * @param logger  - the logger.
+     * @param config  - the game configuration (config.networkHost and config.networkPort are used).
+     * @param players - the players (remote key presses are dispatched to them).
+     * @param ui      - the decorated user interface (may be null).
+     * @param feed    - the spectator feed served to spectating connections (may be null).
+     * @throws IOException - if the server socket cannot be opened.
+     */
+    public NetworkServer(Logger logger, Config config, Player[] players, UserInterface ui, SpectatorFeed feed)
+            throws IOException {
+        this.logger = logger;
+        this.config = config;
+        this.players = players;
+        this.ui = ui;
+        this.feed = feed;
+        this.joined = new Connection[players.length];
+        this.message = ByteBuffer.allocate(
+                Math.max(1 + Integer.BYTES + Long.BYTES, 1 + Integer.BYTES * (1 + players.length)));
+
+        selector = Selector.open();
+        serverChannel = ServerSocketChannel.open();
+        serverChannel.bind(new InetSocketAddress(config.networkHost, config.networkPort));
+        serverChannel.configureBlocking(false);
+        serverChannel.register(selector, SelectionKey.OP_ACCEPT);
+        selectorThread = new Thread(this::selectLoop, "network");
+        selectorThread.setDaemon(true);
+        if (feed != null) feed.setUpdateListener(() -> {
+            if (spectators.get() > 0) selector.wakeup();
+        });
+    }
+
+    /**
+     * Starts accepting connections.
+     */
+    public void start() {
+        logger.info("network server listening on " + config.networkHost + ":" + localPort());
+        selectorThread.start();
+    }
+
+    /**
+     * @return - the port the server is listening on.
+     */
+    public int localPort() {
+        return serverChannel.socket().getLocalPort();
+    }
+
+    /**
+     * @return - the number of open connections.
+     */
+    public int connections() {
+        return connections.size();
+    }
+
+    /**
+     * Closes all the connections and stops the server.
+     */
+    public void close() {
+        closed = true;
+        try {
+            selector.close();
+            serverChannel.close();
+            for (Connection connection : connections) connection.channel.close();
+        } catch (IOException ignored) {}
+        connections.clear();
+    }
+
+    private void selectLoop() {
+        try {
+            while (!closed) {
+                selector.select();
+                Connection pending;
+                while ((pending = pendingWrites.poll()) != null) {
+                    boolean overflow;
+                    synchronized (pending) {
+                        overflow = pending.overflow;
+                    }
+                    if (overflow) disconnect(pending, "output buffer overflow");
+                    else if (pending.key.isValid())
+                        pending.key.interestOps(SelectionKey.OP_READ | SelectionKey.OP_WRITE);
+                }
+                if (spectators.get() > 0)
+                    for (Connection connection : connections)
+                        if (connection.spectator != null) {
+                            try {
+                                writeFrames(connection);
+                            } catch (IOException e) {
+                                disconnect(connection, e.getMessage());
+                            }
+                        }
+
+                Iterator<SelectionKey> keys = selector.selectedKeys().iterator();
+                while (keys.hasNext()) {
+                    SelectionKey key = keys.next();
+                    keys.remove();
+                    if (!key.isValid()) continue;
+                    if (key.isAcceptable()) accept();
+                    else {
+                        Connection connection = (Connection) key.attachment();
+                        try {
+                            if (key.isReadable()) read(connection);
+                            if (key.isValid() && key.isWritable()) write(connection);
+                        } catch (IOException e) {
+                            disconnect(connection, e.getMessage());
+                        }
+                    }
+                }
+            }
+        } catch (IOException | ClosedSelectorException e) {
+            if (!closed) logger.severe("network server stopped: " + e.getMessage());
+        }
+    }
+
+    private void accept() throws IOException {
+        SocketChannel channel = serverChannel.accept();
+        if (channel == null) return;
+        channel.configureBlocking(false);
+        channel.socket().setTcpNoDelay(true);
+        Connection connection = new Connection(channel);
+        connection.key = channel.register(selector, SelectionKey.OP_READ, connection);
+        connections.add(connection);
+        logger.info("network connection from " + channel.getRemoteAddress());
+    }
+
+    private void disconnect(Connection connection, String reason) {
+        if (!connections.remove(connection)) return;
+        if (connection.spectator != null) spectators.decrementAndGet();
+        if (connection.player >= 0) joined[connection.player] = null;
+        connection.key.cancel();
+        try {
+            connection.channel.close();
+        } catch (IOException ignored) {}
+        logger.info("network connection closed: " + reason);
+    }
+
+    private void read(Connection connection) throws IOException {
+        ByteBuffer in = connection.in;
+        if (connection.channel.read(in) < 0) {
+            disconnect(connection, "end of stream");
+            return;
+        }
+        in.flip();
+        while (in.hasRemaining()) {
+            byte type = in.get(in.position());
+            int length = clientPayloadLength(type);
+            if (length < 0) {
+                disconnect(connection, "unknown message type " + type);
+                return;
+            }
+            if (in.remaining() < length + 1) break; // wait for the rest of the message
+            in.get();
+            if (type == JOIN) join(connection, in.getInt());
+            else if (type == KEY) keyPressed(connection, in.getInt());
+            else spectate(connection);
+        }
+        in.compact();
+    }
+
+    /**
+     * Binds a connection to a player. Only human players that are not played on the local keyboard can be joined, by
+     * one connection each (so the key presses of a player come from a single connection).
+     */
+    private void join(Connection connection, int player) {
+        String refused = null;
+        if (connection.player >= 0) refused = "the connection already joined as player " + (connection.player + 1);
+        else if (player < 0 || player >= players.length || player >= config.humanPlayers) refused = "not a human player";
+        else if (config.hasLocalKeys(player)) refused = "the player is played on the local keyboard";
+        else if (joined[player] != null) refused = "another connection joined as the player";
+        if (refused != null) {
+            logger.warning("network connection cannot join as player " + (player + 1) + ": " + refused);
+            return;
+        }
+        joined[player] = connection;
+        connection.player = player;
+        logger.info("network connection joined as player " + (player + 1));
+    }
+
+    private void spectate(Connection connection) throws IOException {
+        if (feed == null || connection.spectator != null) return;
+        connection.spectator = feed.subscribe();
+        spectators.incrementAndGet();
+        logger.info("network connection is spectating");
+        writeFrames(connection);
+    }
+
+    /**
+     * Writes the pending spectator feed frames of a connection (views of the shared frames, which are not copied per
+     * connection; the frames are heap buffers, so the channel still copies them on write).
+     */
+    private void writeFrames(Connection connection) throws IOException {
+        if (connection.frames.isEmpty()) connection.frames.addAll(connection.spectator.poll());
+        while (!connection.frames.isEmpty()) {
+            ByteBuffer frame = connection.frames.peek();
+            connection.channel.write(frame);
+            if (frame.hasRemaining()) {
+                connection.key.interestOps(SelectionKey.OP_READ | SelectionKey.OP_WRITE);
+                return;
+            }
+            connection.frames.poll();
+            if (connection.frames.isEmpty()) connection.frames.addAll(connection.spectator.poll());
+        }
+        connection.key.interestOps(SelectionKey.OP_READ);
+    }
+
+    private void keyPressed(Connection connection, int slot) {
+        if (connection.player >= 0 && slot >= 0 && slot < config.tableSize && players[connection.player] != null)
+            players[connection.player].keyPressed(slot);
+    }
+
+    private void write(Connection connection) throws IOException {
+        if (connection.spectator != null) {
+            writeFrames(connection);
+            return;
+        }
+        synchronized (connection) {
+            if (connection.overflow) return; // the connection is about to be closed
+            connection.out.flip();
+            connection.channel.write(connection.out);
+            connection.out.compact();
+            if (connection.out.position() == 0) connection.key.interestOps(SelectionKey.OP_READ);
+        }
+    }
+
+    /**
+     * Copies the encoded message to the output buffers of all the connections.
+     * Must be called while holding this object's lock.
+     */
+    private void broadcast() {
+        message.flip();
+        for (Connection connection : connections) {
+            if (connection.spectator != null) continue;
+            boolean notify;
+            synchronized (connection) {
+                if (connection.overflow) continue;
+                notify = connection.out.position() == 0;
+                if (connection.out.remaining() < message.remaining()) connection.overflow = notify = true;
+                else connection.out.put(message.duplicate());
+            }
+            if (notify) {
+                pendingWrites.add(connection);
+                selector.wakeup();
+            }
+        }
+        message.clear();
+    }
+
+    @Override
+    public void placeCard(int card, int slot) {
+        synchronized (this) {
+            message.put(PLACE_CARD).putInt(slot).putInt(card);
+            broadcast();
+        }
+        if (ui != null) ui.placeCard(card, slot);
+    }
+
+    @Override
+    public void removeCard(int slot) {
+        synchronized (this) {
+            message.put(REMOVE_CARD).putInt(slot);
+            broadcast();
+        }
+        if (ui != null) ui.removeCard(slot);
+    }
+
+    @Override
+    public void placeToken(int player, int slot) {
+        synchronized (this) {
+            message.put(PLACE_TOKEN).putInt(player).putInt(slot);
+            broadcast();
+        }
+        if (ui != null) ui.placeToken(player, slot);
+    }
+
+    @Override
+    public void removeTokens() {
+        synchronized (this) {
+            message.put(REMOVE_ALL_TOKENS);
+            broadcast();
+        }
+        if (ui != null) ui.removeTokens();
+    }
+
+    @Override
+    public void removeTokens(int slot) {
+        synchronized (this) {
+            message.put(REMOVE_SLOT_TOKENS).putInt(slot);
+            broadcast();
+        }
+        if (ui != null) ui.removeTokens(slot);
+    }
+
+    @Override
+    public void removeToken(int player, int slot) {
+        synchronized (this) {
+            message.put(REMOVE_TOKEN).putInt(player).putInt(slot);
+            broadcast();
+        }
+        if (ui != null) ui.removeToken(player, slot);
+    }
+
+    @Override
+    public void setCountdown(long millies, boolean warn) {
+        synchronized (this) {
+            message.put(COUNTDOWN).putLong(millies).put((byte) (warn ? 1 : 0));
+            broadcast();
+        }
+        if (ui != null) ui.setCountdown(millies, warn);
+    }
+
+    @Override
+    public void setElapsed(long millies) {
+        synchronized (this) {
+            message.put(ELAPSED).putLong(millies);
+            broadcast();
+        }
+        if (ui != null) ui.setElapsed(millies);
+    }
+
+    @Override
+    public void setFreeze(int player, long millies) {
+        synchronized (this) {
+            message.put(FREEZE).putInt(player).putLong(millies);
+            broadcast();
+        }
+        if (ui != null) ui.setFreeze(player, millies);
+    }
+
+    @Override
+    public void setScore(int player, int score) {
+        synchronized (this) {
+            message.put(SCORE).putInt(player).putInt(score);
+            broadcast();
+        }
+        if (ui != null) ui.setScore(player, score);
+    }
+
+    @Override
+    public void announceWinner(int[] players) {
+        synchronized (this) {
+            message.put(WINNER).putInt(players.length);
+            for (int player : players) message.putInt(player);
+            broadcast();
+        }
+        if (ui != null) ui.announceWinner(players);
+    }
+
+    @Override
+    public void dispose() {
+        close();
+        if (ui != null) ui.dispose();
+    }
+}
@@ -0,0 +1,153 @@
+package bguspl.set;
+
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveTask;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Enumerates the legal sets of a collection of cards in parallel, for analytics over many deals.
+ * The first card index space is split recursively between the tasks of a fork join pool, and every set found is
+ * packed into a single long (see pack) instead of an int array.
+ */
+public class ParallelSetEnumerator {
+
+    private static final int CARD_BITS = 21;
+    private static final long CARD_MASK = (1L << CARD_BITS) - 1;
+
+    private final Config config;
+    private final ForkJoinPool pool;
+
+    public ParallelSetEnumerator(Config config, ForkJoinPool pool) {
+        this.config = config;
+        this.pool = pool;
+    }
+
+    public ParallelSetEnumerator(Config config) {
+        this(config, ForkJoinPool.commonPool());
+    }
+
+    /**
+     * Packs the card ids of a set into a single long (21 bits per card).
+     */
+    public static long pack(int a, int b, int c) {
+        return ((long) a << (2 * CARD_BITS)) | ((long) b << CARD_BITS) | c;
+    }
+
+    /**
+     * @param set   - a packed set (see pack).
+     * @param index - the index of the card in the set (0 to 2).
+     * @return - the card id.
+     */
+    public static int card(long set, int index) {
+        return (int) ((set >>> ((2 - index) * CARD_BITS)) & CARD_MASK);
+    }
+
+    /**
+     * Finds up to limit sets in the given collection of cards.
+     *
+     * @param deck  - a collection of cards (may not include null objects).
+     * @param limit - the maximum number of sets to find (the search stops early once reached).
+     * @return - the packed sets found (in lexicographic order if the limit was not reached).
+     */
+    public long[] enumerate(List<Integer> deck, long limit) {
+        if (limit <= 0) return new long[0];
+        VectorizedSetSearch search = new VectorizedSetSearch(config, deck);
+        LongBuffer sets = pool.invoke(new EnumerateTask(search, 0, search.size(), splitThreshold(search), limit, new AtomicLong(), true));
+        return sets.toArray(limit);
+    }
+
+    /**
+     * Counts up to limit sets in the given collection of cards without storing them.
+     *
+     * @param deck  - a collection of cards (may not include null objects).
+     * @param limit - the maximum number of sets to count.
+     * @return - the number of sets found (at most limit).
+     */
+    public long count(List<Integer> deck, long limit) {
+        if (limit <= 0) return 0;
+        VectorizedSetSearch search = new VectorizedSetSearch(config, deck);
+        AtomicLong found = new AtomicLong();
+        pool.invoke(new EnumerateTask(search, 0, search.size(), splitThreshold(search), limit, found, false));
+        return Math.min(found.get(), limit);
+    }
+
+    /**
+     * @return - the amount of work (in candidate triples) below which a task searches its range without splitting it.
+     */
+    private long splitThreshold(VectorizedSetSearch search) {
+        long n = search.size();
+        return n * n * Math.max(1, n / (pool.getParallelism() * 8L));
+    }
+
+    /**
+     * A growable array of packed sets.
+     */
+    private static class LongBuffer {
+        long[] values = new long[16];
+        int size;
+
+        void add(long value) {
+            if (size == values.length) values = Arrays.copyOf(values, size * 2);
+            values[size++] = value;
+        }
+
+        LongBuffer append(LongBuffer other) {
+            if (size + other.size > values.length) values = Arrays.copyOf(values, size + other.size);
+            System.arraycopy(other.values, 0, values, size, other.size);
+            size += other.size;
+            return this;
+        }
+
+        long[] toArray(long limit) {
+            return Arrays.copyOf(values, (int) Math.min(size, limit));
+        }
+    }
+
+    private static class EnumerateTask extends RecursiveTask<LongBuffer> {
+
+        private static final long serialVersionUID = 1L;
+
+        private final VectorizedSetSearch search;
+        private final int from, to;
+        private final long threshold;
+        private final long limit;
+        private final AtomicLong found;
+        private final boolean collect;
+
+        EnumerateTask(VectorizedSetSearch search, int from, int to, long threshold, long limit, AtomicLong found,
+                      boolean collect) {
+            this.search = search;
+            this.from = from;
+            this.to = to;
+            this.threshold = threshold;
+            this.limit = limit;
+            this.found = found;
+            this.collect = collect;
+        }
+
+        @Override
+        protected LongBuffer compute() {
+            LongBuffer sets = new LongBuffer();
+            if (found.get() >= limit) return sets;
+
+            // the work for a first card index i is about (n - i) ^ 2, so split until the ranges are small enough
+            int n = search.size();
+            long work = (long) (n - from) * (n - from) * (to - from);
+            if (to - from > 1 && work > threshold) {
+                int middle = (from + to) >>> 1;
+                EnumerateTask right = new EnumerateTask(search, middle, to, threshold, limit, found, collect);
+                right.fork();
+                LongBuffer left = new EnumerateTask(search, from, middle, threshold, limit, found, collect).compute();
+                return left.append(right.join());
+            }
+
+            search.search(from, to, (a, b, c) -> {
+                if (collect) sets.add(pack(a, b, c));
+                return found.incrementAndGet() < limit;
+            });
+            return sets;
+        }
+    }
+}
@@ -0,0 +1,276 @@
+package bguspl.set;
+
+import java.io.IOException;
+import java.nio.BufferUnderflowException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Objects;
+
+/**
+ * An embedded, append-only store of game results, kept in a single local file.
+ * Records are batched in a buffer and written to the file channel in large writes. The store keeps an in-memory
+ * index of aggregated statistics per (strategy, configuration hash), rebuilt by scanning the file when it is opened,
+ * so win rate queries do not touch the file at all.
+ * <p>
+ * File format (big-endian): [MAGIC (int)] [VERSION (int)], followed by the records:
+ * [record length (int, excluding itself)] [seed (long)] [config hash (long)] [end time (long)] [duration (long)]
+ * [players (short)] and for each player: [strategy length (unsigned short)] [strategy (UTF-8)] [score (int)]
+ * [claims (int)] [penalties (int)]. A record is at most MAX_RECORD_BYTES long.
+ */
+public class ResultsStore implements AutoCloseable {
+
+    private static final int MAGIC = 0x53455452; // "SETR"
+    private static final int VERSION = 2;
+    private static final int HEADER_BYTES = 2 * Integer.BYTES;
+
+    /**
+     * The maximal length of a record (a longer length prefix can only be the garbage of a torn write).
+     */
+    static final int MAX_RECORD_BYTES = 1 << 20;
+
+    private static final int MAX_STRATEGY_BYTES = 0xFFFF;
+
+    /**
+     * Aggregated statistics of the players of one strategy in games of one configuration.
+     */
+    public static class Stats {
+        public long games;
+        public long wins;
+        public long totalScore;
+        public long totalClaims;
+        public long totalDurationMillis;
+
+        public double winRate() {
+            return games == 0 ? 0 : (double) wins / games;
+        }
+
+        public double averageScore() {
+            return games == 0 ? 0 : (double) totalScore / games;
+        }
+    }
+
+    private static class IndexKey {
+        final String strategy;
+        final long configHash;
+
+        IndexKey(String strategy, long configHash) {
+            this.strategy = strategy;
+            this.configHash = configHash;
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            if (!(o instanceof IndexKey)) return false;
+            IndexKey other = (IndexKey) o;
+            return configHash == other.configHash && strategy.equals(other.strategy);
+        }
+
+        @Override
+        public int hashCode() {
+            return Objects.hash(strategy, configHash);
+        }
+    }
+
+    private final FileChannel channel;
+    private final ByteBuffer buffer; // guarded by this
+    private final Map<IndexKey, Stats> index = new HashMap<>(); // guarded by this
+    private long records; // guarded by this
+
+    /**
+     * Opens (or creates) a results file and builds its index.
+     *
+     * @param file        - the results file.
+     * @param bufferBytes - the size of the write buffer (records are written when it is full, or on flush).
+     * @throws IOException - if the file cannot be opened or is not a results file.
+     */
+    public ResultsStore(Path file, int bufferBytes) throws IOException {
+        channel = FileChannel.open(file, StandardOpenOption.CREATE, StandardOpenOption.READ, StandardOpenOption.WRITE);
+        buffer = ByteBuffer.allocateDirect(bufferBytes);
+        try {
+            if (channel.size() == 0) {
+                ByteBuffer header = ByteBuffer.allocate(HEADER_BYTES).putInt(MAGIC).putInt(VERSION);
+                header.flip();
+                channel.write(header, 0);
+            } else scan();
+            channel.position(channel.size());
+        } catch (IOException e) {
+            channel.close();
+            throw e;
+        }
+    }
+
+    /**
+     * Reads all the records of the file into the index. A truncated last record (e.g. after a crash) is dropped, and so
+     * is everything from a record whose length is out of bounds or whose content does not match its length.
+     */
+    private void scan() throws IOException {
+        ByteBuffer in = ByteBuffer.allocate(1 << 16);
+        in.flip();
+        channel.position(0);
+        if (!fill(in, HEADER_BYTES) || in.getInt() != MAGIC || in.getInt() != VERSION)
+            throw new IOException("not a results file (or an unsupported version)");
+        long position = HEADER_BYTES;
+        while (fill(in, Integer.BYTES)) {
+            int length = in.getInt(in.position());
+            if (length <= 0 || length > MAX_RECORD_BYTES) break;
+            if (Integer.BYTES + length > in.capacity()) {
+                ByteBuffer larger = ByteBuffer.allocate(Integer.BYTES + length);
+                larger.put(in).flip();
+                in = larger;
+            }
+            if (!fill(in, Integer.BYTES + length)) break;
+            in.getInt();
+            ByteBuffer record = in.slice();
+            record.limit(length);
+            GameResult result;
+            try {
+                result = decode(record);
+            } catch (BufferUnderflowException | IllegalArgumentException e) {
+                break;
+            }
+            if (record.hasRemaining()) break;
+            index(result);
+            in.position(in.position() + length);
+            position += Integer.BYTES + length;
+        }
+        if (position < channel.size()) channel.truncate(position);
+    }
+
+    /**
+     * Reads from the file until the buffer (in read mode) has at least the given number of bytes.
+     *
+     * @return - false iff the end of the file was reached first.
+     */
+    private boolean fill(ByteBuffer in, int bytes) throws IOException {
+        while (in.remaining() < bytes) {
+            in.compact();
+            int read = channel.read(in);
+            in.flip();
+            if (read < 0) return false;
+        }
+        return true;
+    }
+
+    /**
+     * Decodes a record (without its length prefix) written by encode.
+     *
+     * @throws IllegalArgumentException - if the record is invalid.
+     * @throws BufferUnderflowException - if the record is truncated.
+     */
+    static GameResult decode(ByteBuffer in) {
+        long seed = in.getLong(), configHash = in.getLong(), endTime = in.getLong(), duration = in.getLong();
+        int players = in.getShort();
+        if (players < 0) throw new IllegalArgumentException("invalid number of players: " + players);
+        String[] strategies = new String[players];
+        int[] scores = new int[players], claims = new int[players], penalties = new int[players];
+        for (int i = 0; i < players; i++) {
+            byte[] strategy = new byte[in.getShort() & 0xFFFF];
+            in.get(strategy);
+            strategies[i] = new String(strategy, StandardCharsets.UTF_8);
+            scores[i] = in.getInt();
+            claims[i] = in.getInt();
+            penalties[i] = in.getInt();
+        }
+        return new GameResult(seed, configHash, endTime, duration, strategies, scores, claims, penalties);
+    }
+
+    private void index(GameResult result) {
+        for (int i = 0; i < result.players(); i++) {
+            Stats stats = index.computeIfAbsent(new IndexKey(result.strategies[i], result.configHash), k -> new Stats());
+            stats.games++;
+            if (result.isWinner(i)) stats.wins++;
+            stats.totalScore += result.scores[i];
+            stats.totalClaims += result.claims[i];
+            stats.totalDurationMillis += result.durationMillis;
+        }
+        records++;
+    }
+
+    /**
+     * Appends a game result to the store (it is written to the file when the buffer is full, or on flush).
+     */
+    public synchronized void append(GameResult result) throws IOException {
+        int bytes = encodedBytes(result);
+        if (buffer.remaining() < bytes) flush();
+        if (buffer.remaining() < bytes) throw new IOException("record larger than the buffer");
+        encode(result, buffer);
+        index(result);
+    }
+
+    /**
+     * @return - the number of bytes of the encoded record of a result (including its length prefix).
+     * @throws IllegalArgumentException - if the result cannot be encoded (too many players, too long strategy names or
+     *                                  a record longer than MAX_RECORD_BYTES).
+     */
+    static int encodedBytes(GameResult result) {
+        if (result.players() > Short.MAX_VALUE)
+            throw new IllegalArgumentException("too many players to record: " + result.players());
+        long length = 4 * Long.BYTES + Short.BYTES;
+        for (String strategy : result.strategies) {
+            int bytes = strategy.getBytes(StandardCharsets.UTF_8).length;
+            if (bytes > MAX_STRATEGY_BYTES) throw new IllegalArgumentException("strategy name too long: " + bytes);
+            length += Short.BYTES + bytes + 3 * Integer.BYTES;
+        }
+        if (length > MAX_RECORD_BYTES) throw new IllegalArgumentException("record too long: " + length);
+        return Integer.BYTES + (int) length;
+    }
+
+    /**
+     * Writes the record of a result, prefixed by its length (also used to send results between processes).
+     */
+    static void encode(GameResult result, ByteBuffer out) {
+        out.putInt(encodedBytes(result) - Integer.BYTES).putLong(result.seed).putLong(result.configHash)
+                .putLong(result.endTime).putLong(result.durationMillis).putShort((short) result.players());
+        for (int i = 0; i < result.players(); i++) {
+            byte[] strategy = result.strategies[i].getBytes(StandardCharsets.UTF_8);
+            out.putShort((short) strategy.length).put(strategy)
+                    .putInt(result.scores[i]).putInt(result.claims[i]).putInt(result.penalties[i]);
+        }
+    }
+
+    /**
+     * Writes all the buffered records to the file.
+     */
+    public synchronized void flush() throws IOException {
+        buffer.flip();
+        while (buffer.hasRemaining()) channel.write(buffer);
+        buffer.clear();
+    }
+
+    /**
+     * @return - the aggregated statistics of the players of a strategy in games of a configuration (all zero if none).
+     */
+    public synchronized Stats query(String strategy, long configHash) {
+        Stats stats = index.get(new IndexKey(strategy, configHash));
+        Stats copy = new Stats();
+        if (stats != null) {
+            copy.games = stats.games;
+            copy.wins = stats.wins;
+            copy.totalScore = stats.totalScore;
+            copy.totalClaims = stats.totalClaims;
+            copy.totalDurationMillis = stats.totalDurationMillis;
+        }
+        return copy;
+    }
+
+    /**
+     * @return - the number of games recorded in the store.
+     */
+    public synchronized long records() {
+        return records;
+    }
+
+    @Override
+    public synchronized void close() throws IOException {
+        try {
+            flush();
+        } finally {
+            channel.close();
+        }
+    }
+}
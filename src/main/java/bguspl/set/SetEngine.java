@@ -0,0 +1,123 @@
+package bguspl.set;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Finds the legal sets among cards for any feature size k (a set has k cards, and every feature is the same on all of
+ * them or different on all of them).
+ * The cards are combined depth first, and a prefix is abandoned as soon as one of its features is neither all same
+ * nor all different. Once k - 1 cards are chosen (k >= 3) every feature of the last card is forced (the common value,
+ * or the only value missing), so the completing card is looked up instead of searched for. This is a lot faster than
+ * testing all C(n, k) combinations, which explodes for feature sizes of 4 and above.
+ */
+public class SetEngine {
+
+    private final int featureSize;
+
+    private final int featureCount;
+
+    /**
+     * The value of a card id per feature digit (the place value of feature i is weights[i]).
+     */
+    private final int[] weights;
+
+    /**
+     * The position of every card of the deck in the current search (-1 if it is not one of the searched cards).
+     */
+    private final int[] position;
+
+    public SetEngine(Config config) {
+        this.featureSize = config.featureSize;
+        this.featureCount = config.featureCount;
+        this.weights = new int[featureCount];
+        for (int i = featureCount - 1, weight = 1; i >= 0; i--, weight *= featureSize)
+            weights[i] = weight;
+        this.position = new int[config.deckSize];
+    }
+
+    /**
+     * Finds legal sets among the given cards.
+     *
+     * @param cards - the card ids to search.
+     * @param count - the maximal number of sets to find.
+     * @return - the legal sets found (each one sorted), at most count of them.
+     */
+    public synchronized List<int[]> findSets(List<Integer> cards, int count) {
+        List<int[]> sets = new ArrayList<>();
+        int n = cards.size();
+        int k = featureSize;
+        if (n < k || count <= 0) return sets;
+
+        int[] ids = new int[n];
+        int[][] features = new int[n][featureCount];
+        Arrays.fill(position, -1);
+        for (int i = 0; i < n; i++) {
+            ids[i] = cards.get(i);
+            position[ids[i]] = i;
+            for (int f = 0; f < featureCount; f++)
+                features[i][f] = ids[i] / weights[f] % featureSize;
+        }
+
+        // masks[d][f] is the set of values of feature f among the first d chosen cards
+        int[][] masks = new int[k + 1][featureCount];
+        int[] chosen = new int[k];
+        int full = (1 << featureSize) - 1;
+        boolean lookup = k >= 3;
+        int depth = 0;
+        chosen[0] = -1;
+        while (depth >= 0) {
+            int next = ++chosen[depth];
+            if (next >= n || (lookup ? depth == k - 1 : depth == k)) {
+                depth--;
+                continue;
+            }
+            if (!extend(masks[depth], masks[depth + 1], features[next], depth)) continue;
+
+            if (lookup && depth == k - 2) {
+                // the last card is forced: the common value of each all same feature, the missing one otherwise
+                int card = 0;
+                for (int f = 0; f < featureCount; f++) {
+                    int mask = masks[depth + 1][f];
+                    int value = Integer.bitCount(mask) == 1 ? Integer.numberOfTrailingZeros(mask)
+                            : Integer.numberOfTrailingZeros(~mask & full);
+                    card += value * weights[f];
+                }
+                if (position[card] > next) {
+                    chosen[depth + 1] = position[card];
+                    if (!addSet(sets, ids, chosen, k, count)) return sets;
+                }
+            } else if (depth == k - 1) {
+                if (!addSet(sets, ids, chosen, k, count)) return sets;
+            } else {
+                chosen[++depth] = next;
+            }
+        }
+        return sets;
+    }
+
+    /**
+     * Adds a card to a prefix of d cards, if every feature stays all same or all different.
+     *
+     * @return - true iff the extended prefix may still become a set.
+     */
+    private boolean extend(int[] masks, int[] extended, int[] features, int d) {
+        for (int f = 0; f < featureCount; f++) {
+            int bit = 1 << features[f];
+            int mask = masks[f];
+            if (d > 0 && ((mask & bit) != 0 ? mask != bit : Integer.bitCount(mask) != d)) return false;
+            extended[f] = mask | bit;
+        }
+        return true;
+    }
+
+    private static boolean addSet(List<int[]> sets, int[] ids, int[] chosen, int k, int count) {
+        int[] set = new int[k];
+        for (int i = 0; i < k; i++)
+            set[i] = ids[chosen[i]];
+        Arrays.sort(set);
+        sets.add(set);
+        return sets.size() < count;
+    }
+}
@@ -0,0 +1,270 @@
+package bguspl.set;
+
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.List;
+
+/**
+ * A versioned feed of the table state for spectators.
+ * Every user interface event that changes the table state (cards, tokens and scores) is encoded once into a read
+ * only delta frame and kept in a bounded log. Spectators pull the frames they have not seen yet (sharing the same
+ * buffers), and a spectator that is new or fell behind the log gets a snapshot frame of the whole state first.
+ * Publishing a delta costs the same regardless of the number of spectators.
+ * <p>
+ * Frame format (big-endian): [frame length (int, excluding itself)] [version (long)] [type] [payload], where the
+ * payload of each type is (all the fields but the type and the placed flag are ints):
+ * SNAPSHOT: [slots] [card per slot (-1 if none)] [players] [score per player] [tokens] [slot, player] * tokens.
+ * SLOT: [slot] [card (-1 if removed)].
+ * TOKEN: [player] [slot] [placed (0 or 1)].
+ * SLOT_TOKENS_CLEARED: [slot].
+ * ALL_TOKENS_CLEARED: no payload.
+ * SCORE: [player] [score].
+ */
+public class SpectatorFeed implements UserInterface {
+
+    public static final byte SNAPSHOT = 0x20;
+    public static final byte SLOT = 0x21;
+    public static final byte TOKEN = 0x22;
+    public static final byte SLOT_TOKENS_CLEARED = 0x23;
+    public static final byte ALL_TOKENS_CLEARED = 0x24;
+    public static final byte SCORE = 0x25;
+
+    /**
+     * The length of the frame header: [frame length] [version] [type].
+     */
+    private static final int HEADER_BYTES = Integer.BYTES + Long.BYTES + 1;
+
+    private final UserInterface ui;
+
+    // the table state (guarded by this)
+    private final int[] slotToCard;
+    private final BitSet[] slotTokens;
+    private final int[] scores;
+
+    /**
+     * The latest delta frames: the frame of version v is in log[v % log.length] (guarded by this).
+     */
+    private final ByteBuffer[] log;
+    private long version;
+
+    /**
+     * The snapshot of the current version (null if not encoded yet, guarded by this).
+     */
+    private ByteBuffer snapshot;
+
+    /**
+     * Called after every published delta (may be null).
+     */
+    private volatile Runnable updateListener;
+
+    /**
+     * A spectator's position in the feed.
+     */
+    public class Spectator {
+
+        private long seen = -1;
+
+        /**
+         * @return - the frames this spectator has not seen yet (each one a read only view of a shared buffer).
+         */
+        public List<ByteBuffer> poll() {
+            List<ByteBuffer> frames = new ArrayList<>();
+            synchronized (SpectatorFeed.this) {
+                if (seen == version) return frames;
+                if (seen < 0 || version - seen > log.length) {
+                    frames.add(snapshot().duplicate());
+                } else {
+                    for (long v = seen + 1; v <= version; ++v)
+                        frames.add(log[(int) (v % log.length)].duplicate());
+                }
+                seen = version;
+            }
+            return frames;
+        }
+
+        /**
+         * @return - the version of the last frame returned by poll (-1 if none).
+         */
+        public long version() {
+            return seen;
+        }
+    }
+
+    /**
+     * @param config - the game configuration.
+     * @param ui     - the decorated user interface (may be null).
+     */
+    public SpectatorFeed(Config config, UserInterface ui) {
+        this.ui = ui;
+        slotToCard = new int[config.tableSize];
+        Arrays.fill(slotToCard, -1);
+        slotTokens = new BitSet[config.tableSize];
+        for (int i = 0; i < slotTokens.length; ++i)
+            slotTokens[i] = new BitSet(config.players);
+        scores = new int[config.players];
+        log = new ByteBuffer[Math.max(1, config.spectatorLogSize)];
+    }
+
+    /**
+     * @return - a new spectator, that will start with a snapshot of the current state.
+     */
+    public Spectator subscribe() {
+        return new Spectator();
+    }
+
+    public void setUpdateListener(Runnable listener) {
+        this.updateListener = listener;
+    }
+
+    public synchronized long version() {
+        return version;
+    }
+
+    /**
+     * @return - a read only snapshot frame of the current version.
+     */
+    private ByteBuffer snapshot() {
+        if (snapshot != null) return snapshot;
+        int tokens = 0;
+        for (BitSet players : slotTokens) tokens += players.cardinality();
+        ByteBuffer frame = ByteBuffer.allocate(HEADER_BYTES + Integer.BYTES * (1 + slotToCard.length + 1
+                + scores.length + 1 + 2 * tokens));
+        header(frame, SNAPSHOT, version);
+        frame.putInt(slotToCard.length);
+        for (int card : slotToCard) frame.putInt(card);
+        frame.putInt(scores.length);
+        for (int score : scores) frame.putInt(score);
+        frame.putInt(tokens);
+        for (int slot = 0; slot < slotTokens.length; ++slot)
+            for (int player = slotTokens[slot].nextSetBit(0); player >= 0; player = slotTokens[slot].nextSetBit(player + 1))
+                frame.putInt(slot).putInt(player);
+        frame.flip();
+        snapshot = frame.asReadOnlyBuffer();
+        return snapshot;
+    }
+
+    private static void header(ByteBuffer frame, byte type, long version) {
+        frame.putInt(frame.capacity() - Integer.BYTES).putLong(version).put(type);
+    }
+
+    /**
+     * Starts encoding the delta frame of the next version (must be called while holding this object's lock).
+     */
+    private ByteBuffer delta(byte type, int payloadBytes) {
+        ByteBuffer frame = ByteBuffer.allocate(HEADER_BYTES + payloadBytes);
+        header(frame, type, version + 1);
+        return frame;
+    }
+
+    /**
+     * Appends an encoded delta frame to the log (must be called while holding this object's lock).
+     */
+    private void publish(ByteBuffer frame) {
+        frame.flip();
+        ++version;
+        log[(int) (version % log.length)] = frame.asReadOnlyBuffer();
+        snapshot = null;
+    }
+
+    private void notifyUpdate() {
+        Runnable listener = updateListener;
+        if (listener != null) listener.run();
+    }
+
+    @Override
+    public void placeCard(int card, int slot) {
+        synchronized (this) {
+            slotToCard[slot] = card;
+            publish(delta(SLOT, 2 * Integer.BYTES).putInt(slot).putInt(card));
+        }
+        notifyUpdate();
+        if (ui != null) ui.placeCard(card, slot);
+    }
+
+    @Override
+    public void removeCard(int slot) {
+        synchronized (this) {
+            slotToCard[slot] = -1;
+            publish(delta(SLOT, 2 * Integer.BYTES).putInt(slot).putInt(-1));
+        }
+        notifyUpdate();
+        if (ui != null) ui.removeCard(slot);
+    }
+
+    @Override
+    public void placeToken(int player, int slot) {
+        synchronized (this) {
+            slotTokens[slot].set(player);
+            publish(delta(TOKEN, 2 * Integer.BYTES + 1).putInt(player).putInt(slot).put((byte) 1));
+        }
+        notifyUpdate();
+        if (ui != null) ui.placeToken(player, slot);
+    }
+
+    @Override
+    public void removeTokens() {
+        synchronized (this) {
+            for (BitSet players : slotTokens) players.clear();
+            publish(delta(ALL_TOKENS_CLEARED, 0));
+        }
+        notifyUpdate();
+        if (ui != null) ui.removeTokens();
+    }
+
+    @Override
+    public void removeTokens(int slot) {
+        synchronized (this) {
+            slotTokens[slot].clear();
+            publish(delta(SLOT_TOKENS_CLEARED, Integer.BYTES).putInt(slot));
+        }
+        notifyUpdate();
+        if (ui != null) ui.removeTokens(slot);
+    }
+
+    @Override
+    public void removeToken(int player, int slot) {
+        synchronized (this) {
+            slotTokens[slot].clear(player);
+            publish(delta(TOKEN, 2 * Integer.BYTES + 1).putInt(player).putInt(slot).put((byte) 0));
+        }
+        notifyUpdate();
+        if (ui != null) ui.removeToken(player, slot);
+    }
+
+    @Override
+    public void setScore(int player, int score) {
+        synchronized (this) {
+            scores[player] = score;
+            publish(delta(SCORE, 2 * Integer.BYTES).putInt(player).putInt(score));
+        }
+        notifyUpdate();
+        if (ui != null) ui.setScore(player, score);
+    }
+
+    @Override
+    public void setCountdown(long millies, boolean warn) {
+        if (ui != null) ui.setCountdown(millies, warn);
+    }
+
+    @Override
+    public void setElapsed(long millies) {
+        if (ui != null) ui.setElapsed(millies);
+    }
+
+    @Override
+    public void setFreeze(int player, long millies) {
+        if (ui != null) ui.setFreeze(player, millies);
+    }
+
+    @Override
+    public void announceWinner(int[] players) {
+        if (ui != null) ui.announceWinner(players);
+    }
+
+    @Override
+    public void dispose() {
+        if (ui != null) ui.dispose();
+    }
+}
@@ -6,6 +6,11 @@ public class ThreadLogger extends Thread {
 
     final Logger logger;
 
+    /**
+     * The thread state profiler (null if profiling is disabled).
+     */
+    private static volatile ThreadProfiler profiler;
+
     public ThreadLogger(Runnable target, String name, Logger logger) {
         super(target, name);
         this.logger = logger;
@@ -13,6 +18,7 @@ public class ThreadLogger extends Thread {
 
     public void startWithLog() {
         logStart(logger, getName());
+        profile(this);
         super.start();
     }
 
@@ -31,4 +37,41 @@ public class ThreadLogger extends Thread {
     public static void logStop(Logger logger, String name) {
         logger.info("thread " + name + " terminated.");
     }
+
+    /**
+     * Starts sampling the states of the profiled threads.
+     *
+     * @param sampleMillis - the number of milliseconds between two samples.
+     */
+    public static synchronized void startProfiling(long sampleMillis) {
+        if (profiler == null) profiler = new ThreadProfiler(sampleMillis);
+    }
+
+    /**
+     * Stops profiling and logs a summary of the thread states and the monitor contention.
+     */
+    public static synchronized void stopProfiling(Logger logger) {
+        if (profiler == null) return;
+        logger.info(profiler.stop());
+        profiler = null;
+    }
+
+    /**
+     * Adds a thread to the set of profiled threads (does nothing if profiling is disabled).
+     */
+    public static void profile(Thread thread) {
+        ThreadProfiler p = profiler;
+        if (p != null) p.watch(thread);
+    }
+
+    /**
+     * Adds a monitor to the set of monitors for which contention is recorded (does nothing if profiling is disabled).
+     *
+     * @param name - the name of the monitor in the summary.
+     * @param lock - the monitor object.
+     */
+    public static void profileLock(String name, Object lock) {
+        ThreadProfiler p = profiler;
+        if (p != null) p.watchLock(name, lock);
+    }
 }
@@ -0,0 +1,184 @@
+package bguspl.set;
+
+import java.lang.management.LockInfo;
+import java.lang.management.ManagementFactory;
+import java.lang.management.ThreadInfo;
+import java.lang.management.ThreadMXBean;
+import java.lang.ref.WeakReference;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * A lightweight sampling profiler for the game threads.
+ * Periodically samples the state of every watched thread and attributes blocked/waiting samples to the watched
+ * monitors (e.g. the table and the players), so the bottleneck of a game can be spotted from its summary.
+ */
+class ThreadProfiler {
+
+    private static final Thread.State[] STATES = Thread.State.values();
+
+    /**
+     * Per-thread sampling data.
+     */
+    private static class ThreadStats {
+        final String name;
+        final long[] samples = new long[STATES.length];
+        long blockedCount, blockedTime = -1, waitedCount, waitedTime = -1;
+
+        ThreadStats(String name) {
+            this.name = name;
+        }
+    }
+
+    /**
+     * Per-monitor sampling data.
+     */
+    private static class LockStats {
+        final String name;
+        long blockedSamples, waitingSamples, contentions;
+
+        LockStats(String name) {
+            this.name = name;
+        }
+    }
+
+    /**
+     * A watched monitor. It is only weakly referenced, so watching it neither keeps it alive nor attributes the samples
+     * of a later object with the same identity hash code to it.
+     */
+    private static class WatchedLock {
+        final WeakReference<Object> lock;
+        final LockStats stats;
+
+        WatchedLock(Object lock, LockStats stats) {
+            this.lock = new WeakReference<>(lock);
+            this.stats = stats;
+        }
+    }
+
+    private final ThreadMXBean mx = ManagementFactory.getThreadMXBean();
+    private final Map<Long, ThreadStats> threads = new ConcurrentHashMap<>();
+
+    /**
+     * The watched monitors by identity hash code (which is all a LockInfo tells about its monitor), and the statistics
+     * of all the monitors ever watched.
+     */
+    private final Map<Integer, List<WatchedLock>> locks = new ConcurrentHashMap<>();
+    private final List<LockStats> lockStats = new CopyOnWriteArrayList<>();
+
+    /**
+     * The monitor each thread was blocked on in the previous sample (absent if none).
+     */
+    private final Map<Long, LockStats> lastBlockedOn = new ConcurrentHashMap<>();
+
+    private final ScheduledExecutorService sampler;
+    private final long startTime = System.currentTimeMillis();
+    private volatile long sampleCount;
+
+    ThreadProfiler(long sampleMillis) {
+        if (mx.isThreadContentionMonitoringSupported()) mx.setThreadContentionMonitoringEnabled(true);
+        sampler = Executors.newSingleThreadScheduledExecutor(r -> {
+            Thread t = new Thread(r, "profiler");
+            t.setDaemon(true);
+            return t;
+        });
+        sampler.scheduleAtFixedRate(this::sample, sampleMillis, sampleMillis, TimeUnit.MILLISECONDS);
+    }
+
+    void watch(Thread thread) {
+        threads.putIfAbsent(thread.getId(), new ThreadStats(thread.getName()));
+    }
+
+    void watchLock(String name, Object lock) {
+        LockStats stats = new LockStats(name);
+        lockStats.add(stats);
+        locks.computeIfAbsent(System.identityHashCode(lock), hash -> new CopyOnWriteArrayList<>())
+                .add(new WatchedLock(lock, stats));
+    }
+
+    /**
+     * @return - the statistics of the watched monitor described by the lock info (null if it is not watched, or if
+     * several live watched monitors of its class share its identity hash code).
+     */
+    private LockStats lockStats(LockInfo info) {
+        List<WatchedLock> candidates = locks.get(info.getIdentityHashCode());
+        if (candidates == null) return null;
+        candidates.removeIf(watched -> watched.lock.get() == null);
+        LockStats found = null;
+        for (WatchedLock watched : candidates) {
+            Object lock = watched.lock.get();
+            if (lock == null || !lock.getClass().getName().equals(info.getClassName())) continue;
+            if (found != null) return null;
+            found = watched.stats;
+        }
+        return found;
+    }
+
+    private void sample() {
+        long[] ids = threads.keySet().stream().mapToLong(Long::longValue).toArray();
+        ThreadInfo[] infos = mx.getThreadInfo(ids);
+        for (int i = 0; i < ids.length; i++) {
+            ThreadInfo info = infos[i];
+            if (info == null) continue; // thread is not alive (yet or anymore)
+            ThreadStats stats = threads.get(ids[i]);
+            Thread.State state = info.getThreadState();
+            stats.samples[state.ordinal()]++;
+            stats.blockedCount = info.getBlockedCount();
+            stats.blockedTime = info.getBlockedTime();
+            stats.waitedCount = info.getWaitedCount();
+            stats.waitedTime = info.getWaitedTime();
+
+            LockInfo lock = info.getLockInfo();
+            LockStats lockStats = lock == null ? null : lockStats(lock);
+            LockStats blockedOn = null;
+            if (lockStats != null) {
+                if (state == Thread.State.BLOCKED) {
+                    lockStats.blockedSamples++;
+                    blockedOn = lockStats;
+                    if (lastBlockedOn.get(ids[i]) != blockedOn) lockStats.contentions++;
+                } else if (state == Thread.State.WAITING || state == Thread.State.TIMED_WAITING)
+                    lockStats.waitingSamples++;
+            }
+            if (blockedOn != null) lastBlockedOn.put(ids[i], blockedOn);
+            else lastBlockedOn.remove(ids[i]);
+        }
+        sampleCount++;
+    }
+
+    /**
+     * Stops sampling and builds a summary of the collected data.
+     *
+     * @return - the summary text.
+     */
+    String stop() {
+        sampler.shutdownNow();
+        try {
+            sampler.awaitTermination(1, TimeUnit.SECONDS);
+        } catch (InterruptedException ignored) {}
+
+        StringBuilder sb = new StringBuilder()
+                .append("profiler summary (").append(sampleCount).append(" samples in ")
+                .append(System.currentTimeMillis() - startTime).append(" ms):");
+        for (ThreadStats stats : threads.values()) {
+            long total = 0;
+            for (long count : stats.samples) total += count;
+            sb.append(System.lineSeparator()).append("  thread ").append(stats.name).append(":");
+            for (Thread.State state : STATES)
+                if (stats.samples[state.ordinal()] > 0)
+                    sb.append(' ').append(state).append('=').append(100 * stats.samples[state.ordinal()] / total).append('%');
+            sb.append(" blocked=").append(stats.blockedCount).append(" (").append(stats.blockedTime).append(" ms)")
+                    .append(" waited=").append(stats.waitedCount).append(" (").append(stats.waitedTime).append(" ms)");
+        }
+        for (LockStats stats : lockStats)
+            sb.append(System.lineSeparator()).append("  monitor ").append(stats.name).append(":")
+                    .append(" contentions=").append(stats.contentions)
+                    .append(" blocked samples=").append(stats.blockedSamples)
+                    .append(" waiting samples=").append(stats.waitingSamples);
+        return sb.toString();
+    }
+}
@@ -0,0 +1,270 @@
+package bguspl.set;
+
+import java.io.BufferedInputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.nio.BufferUnderflowException;
+import java.nio.ByteBuffer;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.logging.Logger;
+
+/**
+ * Runs a tournament (config.games games with consecutive seeds) on config.workers worker JVMs (see TournamentWorker),
+ * so a huge tournament is not limited by the heap and garbage collector of a single process.
+ * Each worker is handed a range of seeds, one game at a time over its standard input, and streams the results back
+ * over its standard output. A worker that crashes is restarted (a limited number of times) and continues with its
+ * remaining seeds; the seeds of a worker that cannot be restarted are taken over by the other workers, or played by the
+ * coordinator itself if none is left. A worker that does not return a result within config.gameTimeoutMillis is
+ * destroyed and handled like a crashed one. Every seed is attempted a limited number of times in total, on any worker.
+ */
+class TournamentCoordinator {
+
+    /**
+     * The number of times a crashed worker is restarted, and the number of times a game is attempted (by all the
+     * workers together).
+     */
+    private static final int MAX_RESTARTS = 2;
+    private static final int MAX_ATTEMPTS = 2;
+
+    private final Logger logger;
+
+    private final Config config;
+
+    private final String configFilename;
+
+    private final List<GameResult> results = new ArrayList<>(); // guarded by itself
+
+    /**
+     * Seeds left over by workers that could not be restarted.
+     */
+    private final ConcurrentLinkedQueue<Long> orphans = new ConcurrentLinkedQueue<>();
+
+    /**
+     * The number of times each seed was sent to a worker.
+     */
+    private final ConcurrentHashMap<Long, Integer> attempts = new ConcurrentHashMap<>();
+
+    /**
+     * Destroys the workers that take too long to play a game (created by run).
+     */
+    private ScheduledExecutorService watchdog;
+
+    /**
+     * The seeds of a worker and its statistics.
+     */
+    private class Worker implements Runnable {
+        final int index;
+        final Deque<Long> seeds = new ArrayDeque<>();
+        volatile Process process;
+        int games;
+        int restarts;
+        long busyNanos;
+
+        Worker(int index) {
+            this.index = index;
+        }
+
+        @Override
+        public void run() {
+            long start = System.nanoTime();
+            try {
+                while (!seeds.isEmpty() || !orphans.isEmpty()) {
+                    try {
+                        serve();
+                    } catch (IOException e) {
+                        logger.warning("worker " + index + " crashed: " + e.getMessage());
+                        if (restarts++ == MAX_RESTARTS) {
+                            logger.severe("worker " + index + " gave up, reassigning " + seeds.size() + " seeds");
+                            orphans.addAll(seeds);
+                            seeds.clear();
+                            return;
+                        }
+                    } finally {
+                        if (process != null) process.destroy();
+                    }
+                }
+            } finally {
+                busyNanos = System.nanoTime() - start;
+            }
+        }
+
+        /**
+         * Starts the worker process and sends it seeds until there are none left.
+         */
+        private void serve() throws IOException {
+            process = start();
+            DataOutputStream out = new DataOutputStream(process.getOutputStream());
+            DataInputStream in = new DataInputStream(new BufferedInputStream(process.getInputStream()));
+            while (true) {
+                Long seed = seeds.peekFirst();
+                if (seed == null) {
+                    seed = orphans.poll();
+                    if (seed == null) break;
+                    seeds.addFirst(seed);
+                }
+                int attempt = attempts.merge(seed, 1, Integer::sum);
+                if (attempt > MAX_ATTEMPTS) {
+                    logger.severe("game " + seed + " failed " + MAX_ATTEMPTS + " times, skipping it");
+                    seeds.pollFirst();
+                    continue;
+                }
+                // a worker stuck in a game is destroyed (its input ends), and the game counts as a failed attempt
+                Process worker = process;
+                long game = seed, timeout = config.gameTimeoutMillis;
+                ScheduledFuture<?> deadline = timeout <= 0 ? null : watchdog.schedule(() -> {
+                    logger.warning("worker " + index + " did not finish game " + game + " in " + timeout + " ms");
+                    worker.destroyForcibly();
+                }, timeout, TimeUnit.MILLISECONDS);
+                GameResult result;
+                try {
+                    out.writeLong(seed);
+                    out.flush();
+                    result = readResult(in);
+                } finally {
+                    if (deadline != null) deadline.cancel(false);
+                }
+                seeds.pollFirst();
+                games++;
+                synchronized (results) {
+                    results.add(result);
+                }
+            }
+            out.close();
+            try {
+                process.waitFor();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        }
+    }
+
+    /**
+     * Reads a result written by TournamentWorker.serve (a length prefixed ResultsStore record).
+     *
+     * @throws IOException - if the stream ends or the record is invalid.
+     */
+    static GameResult readResult(DataInputStream in) throws IOException {
+        int length = in.readInt();
+        if (length <= 0 || length > ResultsStore.MAX_RECORD_BYTES)
+            throw new IOException("invalid result length: " + length);
+        byte[] record = new byte[length];
+        in.readFully(record);
+        ByteBuffer buffer = ByteBuffer.wrap(record);
+        try {
+            GameResult result = ResultsStore.decode(buffer);
+            if (buffer.hasRemaining()) throw new IOException("invalid result record");
+            return result;
+        } catch (BufferUnderflowException | IllegalArgumentException e) {
+            throw new IOException("invalid result record");
+        }
+    }
+
+    /**
+     * @param logger         - the logger.
+     * @param config         - the configuration of the tournament.
+     * @param configFilename - the configuration file the workers load.
+     */
+    TournamentCoordinator(Logger logger, Config config, String configFilename) {
+        this.logger = logger;
+        this.config = config;
+        this.configFilename = configFilename;
+    }
+
+    /**
+     * Starts a worker JVM (with the class path and the working directory of this one).
+     */
+    private Process start() throws IOException {
+        String java = System.getProperty("java.home") + File.separator + "bin" + File.separator + "java";
+        ProcessBuilder builder = new ProcessBuilder(java, "-cp", System.getProperty("java.class.path"),
+                Main.class.getName(), TournamentWorker.ARGUMENT, configFilename);
+        builder.redirectError(ProcessBuilder.Redirect.INHERIT);
+        return builder.start();
+    }
+
+    /**
+     * Plays the tournament and reports its results.
+     *
+     * @return - the results of all the games.
+     */
+    List<GameResult> run() throws InterruptedException {
+        long start = System.nanoTime();
+        Worker[] workers = new Worker[config.workers];
+        for (int w = 0; w < workers.length; w++)
+            workers[w] = new Worker(w);
+        // contiguous ranges of seeds
+        for (int game = 0; game < config.games; game++)
+            workers[(int) ((long) game * workers.length / config.games)].seeds.add(config.seed + game);
+
+        watchdog = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "coordinator-watchdog");
+            thread.setDaemon(true);
+            return thread;
+        });
+        Thread[] threads = new Thread[workers.length];
+        for (int w = 0; w < workers.length; w++) {
+            threads[w] = new Thread(workers[w], "coordinator-" + w);
+            threads[w].start();
+        }
+        try {
+            for (Thread thread : threads)
+                thread.join();
+        } finally {
+            for (Worker worker : workers)
+                if (worker.process != null) worker.process.destroy();
+            watchdog.shutdownNow();
+        }
+
+        // nobody was left to take over these seeds
+        if (!orphans.isEmpty()) {
+            logger.severe("playing " + orphans.size() + " games of crashed workers locally");
+            TournamentWorker local = new TournamentWorker(logger, Config.loadProperties(configFilename, logger));
+            for (Long seed; (seed = orphans.poll()) != null; ) {
+                GameResult result = local.play(seed);
+                synchronized (results) {
+                    results.add(result);
+                }
+            }
+        }
+
+        report(workers, System.nanoTime() - start);
+        return results;
+    }
+
+    /**
+     * Logs the merged results of the tournament and the throughput of every worker.
+     */
+    private void report(Worker[] workers, long nanos) {
+        Map<String, long[]> strategies = new TreeMap<>(); // games, wins, total score
+        for (GameResult result : results)
+            for (int i = 0; i < result.players(); i++) {
+                long[] stats = strategies.computeIfAbsent(result.strategies[i], s -> new long[3]);
+                stats[0]++;
+                if (result.isWinner(i)) stats[1]++;
+                stats[2] += result.scores[i];
+            }
+
+        StringBuilder sb = new StringBuilder();
+        sb.append(String.format("tournament: %d of %d games in %.1f s (%.1f games/s)%n", results.size(), config.games,
+                nanos / 1e9, results.size() / (nanos / 1e9)));
+        for (Worker worker : workers)
+            sb.append(String.format("  worker %d: %d games, %.1f games/s, %d restarts%n", worker.index, worker.games,
+                    worker.games / Math.max(worker.busyNanos / 1e9, 1e-9), worker.restarts));
+        strategies.forEach((strategy, stats) -> sb.append(String.format(
+                "  %s: %d player games, win rate %.3f, average score %.2f%n", strategy, stats[0],
+                (double) stats[1] / stats[0], (double) stats[2] / stats[0])));
+        logger.severe(sb.toString());
+    }
+}
@@ -0,0 +1,131 @@
+package bguspl.set;
+
+import bguspl.set.ex.Dealer;
+import bguspl.set.ex.Player;
+import bguspl.set.ex.Table;
+
+import java.io.DataInputStream;
+import java.io.EOFException;
+import java.io.FileDescriptor;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.util.Properties;
+import java.util.logging.Logger;
+
+/**
+ * The worker process of a tournament (see TournamentCoordinator): reads seeds from its standard input, plays a headless
+ * game with computer players for each seed, and writes each result (encoded as a ResultsStore record) to its standard
+ * output. Exits when its standard input is closed.
+ */
+class TournamentWorker {
+
+    /**
+     * The command line argument that starts Main as a worker.
+     */
+    static final String ARGUMENT = "--worker";
+
+    private final Logger logger;
+
+    private final Properties properties;
+
+    private final Util util;
+
+    /**
+     * @param logger     - the logger.
+     * @param properties - the configuration of the tournament (the seed is replaced for every game).
+     */
+    TournamentWorker(Logger logger, Properties properties) {
+        this.logger = logger;
+        this.properties = gameProperties(logger, properties);
+        this.util = new UtilImpl(new Config(logger, this.properties));
+    }
+
+    /**
+     * @return - the configuration of the games of a tournament: headless, computer players only, a single table and no
+     * output files, network server or end of game pause.
+     */
+    static Properties gameProperties(Logger logger, Properties tournament) {
+        Properties properties = new Properties();
+        properties.putAll(tournament);
+        Config config = new Config(logger, tournament);
+        properties.setProperty("HumanPlayers", "0");
+        properties.setProperty("ComputerPlayers", Integer.toString(config.players));
+        properties.setProperty("UserInterface", "headless");
+        properties.setProperty("Hints", "false");
+        properties.setProperty("Tables", "1");
+        properties.setProperty("Workers", "0");
+        properties.setProperty("NetworkPort", "-1");
+        properties.setProperty("ResultsFile", "");
+        properties.setProperty("CheckpointFile", "");
+        properties.setProperty("EndGamePauseSeconds", "0");
+        return properties;
+    }
+
+    /**
+     * Plays a single game.
+     *
+     * @return - the result of the game.
+     */
+    GameResult play(long seed) throws InterruptedException {
+        Properties game = new Properties();
+        game.putAll(properties);
+        game.setProperty("Seed", Long.toString(seed));
+        Config config = new Config(logger, game);
+        Env env = new Env(logger, config, new UserInterfaceHeadless(config), util);
+        Table table = new Table(env);
+        Player[] players = new Player[config.players];
+        Dealer dealer = new Dealer(env, table, players);
+        for (int i = 0; i < players.length; i++)
+            players[i] = new Player(env, dealer, table, i, false);
+        Thread thread = new Thread(dealer, "dealer " + seed);
+        thread.start();
+        thread.join();
+        return dealer.result();
+    }
+
+    /**
+     * Serves seeds until the input is closed.
+     *
+     * @param input  - the seeds (longs).
+     * @param output - the results (length prefixed ResultsStore records).
+     */
+    void serve(InputStream input, FileChannel output) throws IOException, InterruptedException {
+        DataInputStream seeds = new DataInputStream(input);
+        ByteBuffer buffer = ByteBuffer.allocate(1 << 12);
+        while (true) {
+            long seed;
+            try {
+                seed = seeds.readLong();
+            } catch (EOFException e) {
+                return;
+            }
+            GameResult result = play(seed);
+            int bytes = ResultsStore.encodedBytes(result);
+            if (bytes > buffer.capacity()) buffer = ByteBuffer.allocate(bytes);
+            buffer.clear();
+            ResultsStore.encode(result, buffer);
+            buffer.flip();
+            while (buffer.hasRemaining())
+                output.write(buffer);
+            logger.info("game " + seed + " played in " + result.durationMillis + " ms");
+        }
+    }
+
+    /**
+     * Runs this process as a worker. The standard output is reserved for results (anything printed goes to the
+     * standard error instead).
+     */
+    static void run(Logger logger, String configFilename) {
+        FileChannel output = new FileOutputStream(FileDescriptor.out).getChannel();
+        System.setOut(System.err);
+        try {
+            new TournamentWorker(logger, Config.loadProperties(configFilename, logger)).serve(System.in, output);
+        } catch (IOException e) {
+            logger.severe("worker stopped: " + e.getMessage());
+        } catch (InterruptedException ignored) {
+        }
+    }
+}
@@ -0,0 +1,81 @@
+package bguspl.set;
+
+import java.util.Arrays;
+
+/**
+ * A user interface that displays nothing (for running games without a window, e.g. simulations).
+ * It does no logging and no spinning. If config.headlessScores is set, it keeps the latest scores and the winners
+ * (and nothing otherwise).
+ */
+public class UserInterfaceHeadless implements UserInterface {
+
+    /**
+     * The latest scores (null if they are not kept).
+     */
+    private final int[] scores;
+    private volatile int[] winners = new int[0];
+
+    public UserInterfaceHeadless(Config config) {
+        scores = config.headlessScores ? new int[config.players] : null;
+    }
+
+    /**
+     * @return - the latest score of each player (empty if scores are not kept).
+     */
+    public int[] scores() {
+        if (scores == null) return new int[0];
+        synchronized (scores) {
+            return Arrays.copyOf(scores, scores.length);
+        }
+    }
+
+    /**
+     * @return - the ids of the winners (empty if not announced yet, or if scores are not kept).
+     */
+    public int[] winners() {
+        return winners;
+    }
+
+    @Override
+    public void placeCard(int card, int slot) {}
+
+    @Override
+    public void removeCard(int slot) {}
+
+    @Override
+    public void placeToken(int player, int slot) {}
+
+    @Override
+    public void removeTokens() {}
+
+    @Override
+    public void removeTokens(int slot) {}
+
+    @Override
+    public void removeToken(int player, int slot) {}
+
+    @Override
+    public void setCountdown(long millies, boolean warn) {}
+
+    @Override
+    public void setElapsed(long millies) {}
+
+    @Override
+    public void setFreeze(int player, long millies) {}
+
+    @Override
+    public void setScore(int player, int score) {
+        if (scores == null) return;
+        synchronized (scores) {
+            scores[player] = score;
+        }
+    }
+
+    @Override
+    public void announceWinner(int[] players) {
+        if (scores != null) winners = players.clone();
+    }
+
+    @Override
+    public void dispose() {}
+}
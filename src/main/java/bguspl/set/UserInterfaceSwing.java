@@ -24,6 +24,11 @@ public class UserInterfaceSwing extends JFrame implements UserInterface {
     private final WinnerPanel winnerPanel;
     private final Config config;
 
+    /**
+     * The colour of the token markers of each player (also shown next to the player's name).
+     */
+    private final Color[] playerColors;
+
     static String intInBaseToPaddedString(int n, int padding, int base) {
         return format("%" + padding + "s", Integer.toString(n, base)).replace(' ', '0');
     }
@@ -31,6 +36,10 @@ public class UserInterfaceSwing extends JFrame implements UserInterface {
     public UserInterfaceSwing(Logger logger, Config config, Player[] players) {
 
         this.config = config;
+        playerColors = new Color[config.players];
+        // spread the hues with the golden ratio, so any number of players get distinct colours
+        for (int player = 0; player < playerColors.length; player++)
+            playerColors[player] = Color.getHSBColor(player * 0.618034f % 1, 0.85f, 0.95f);
         timerPanel = new TimerPanel();
         gamePanel = new GamePanel();
         playersPanel = new PlayersPanel();
@@ -46,7 +55,7 @@ public class UserInterfaceSwing extends JFrame implements UserInterface {
 
         add(timerPanel, gbc);
         gbc.gridy++;
-        add(gamePanel, gbc);
+        add(gameScroll(), gbc);
         gbc.gridy++;
         add(playersPanel, gbc);
         gbc.gridy++;
@@ -69,6 +78,27 @@ public class UserInterfaceSwing extends JFrame implements UserInterface {
         EventQueue.invokeLater(() -> setVisible(true));
     }
 
+    /**
+     * Puts the game panel in a scroll pane, so tables larger than the screen can be played (the view port is limited to
+     * three quarters of the screen).
+     */
+    private JScrollPane gameScroll() {
+        JScrollPane scroll = new JScrollPane(gamePanel);
+        Dimension screen = Toolkit.getDefaultToolkit().getScreenSize();
+        Dimension preferred = gamePanel.getPreferredSize();
+        int width = Math.min(preferred.width, screen.width * 3 / 4);
+        int height = Math.min(preferred.height, screen.height * 3 / 4);
+        scroll.getViewport().setPreferredSize(new Dimension(width, height));
+        scroll.getVerticalScrollBar().setUnitIncrement(config.cellHeight / 4);
+        scroll.getHorizontalScrollBar().setUnitIncrement(config.cellWidth / 4);
+        scroll.setBorder(BorderFactory.createEmptyBorder());
+        // keep the keyboard focus on the frame (the key listener is registered there)
+        scroll.setFocusable(false);
+        scroll.getVerticalScrollBar().setFocusable(false);
+        scroll.getHorizontalScrollBar().setFocusable(false);
+        return scroll;
+    }
+
     private class TimerPanel extends JPanel {
 
         private final JLabel timerField;
@@ -100,13 +130,23 @@ public class UserInterfaceSwing extends JFrame implements UserInterface {
         }
     }
 
-    private class GamePanel extends JLayeredPane {
+    private class GamePanel extends JPanel {
 
         private final Image emptyCard;
         private final Image[] deck;
-        private final Image[][] grid;
-        private final boolean[][][] playerTokens;
-        private final JLabel[][] tokenText;
+        private final Image[] grid;
+        /**
+         * The players with a token on each slot, as a bitmask (tokenWords longs per slot).
+         */
+        private final long[] tokens;
+        private final int tokenWords;
+
+        /**
+         * The layout of the token markers in a cell: each player has a fixed position (markersPerRow in a row), and the
+         * markers of all the players fit in the cell.
+         */
+        private final int markersPerRow;
+        private final int markerSize;
 
         private Image loadImageResource(String filename) {
             URL imageResource = getClass().getClassLoader().getResource(filename);
@@ -128,47 +168,46 @@ public class UserInterfaceSwing extends JFrame implements UserInterface {
                 deck[i] = loadImageResource("cards/" + intInBaseToPaddedString(i, config.featureCount, config.featureSize) + ".png");
             emptyCard = loadImageResource("cards/empty_card.png");
 
-            grid = new Image[config.rows][config.columns];
-            tokenText = new JLabel[config.rows][config.columns];
-            playerTokens = new boolean[config.players][config.rows][config.columns];
-            for (int row = 0; row < config.rows; row++) {
-                for (int column = 0; column < config.columns; column++) {
-                    // init the cards on the table grid as empty cards
-                    grid[row][column] = emptyCard;
-
-                    // init the JLabel selection overlay
-                    tokenText[row][column] = new JLabel("");
-                    tokenText[row][column].setVerticalAlignment(JLabel.TOP);
-                    tokenText[row][column].setHorizontalAlignment(JLabel.CENTER);
-                    tokenText[row][column].setOpaque(false);
-                    tokenText[row][column].setBorder(BorderFactory.createLineBorder(Color.black));
-                    tokenText[row][column].setBounds((column * config.cellWidth), (row * config.cellHeight), config.cellWidth, config.cellHeight);
-                    add(tokenText[row][column]);
+            // init the cards on the table grid as empty cards
+            grid = new Image[config.tableSize];
+            Arrays.fill(grid, emptyCard);
+            tokenWords = (config.players + 63) / 64;
+            tokens = new long[config.tableSize * tokenWords];
+            // the largest markers for which the markers of all the players fit in a cell (at most 6 in a row)
+            int bestPerRow = 1, bestSize = 0;
+            for (int perRow = 1; perRow <= Math.max(1, config.players); perRow++) {
+                int rows = (config.players + perRow - 1) / perRow;
+                int size = Math.min(config.cellWidth / Math.max(perRow, 6), config.cellHeight / Math.max(rows, 1));
+                if (size > bestSize) {
+                    bestPerRow = perRow;
+                    bestSize = size;
                 }
             }
+            markersPerRow = bestPerRow;
+            markerSize = Math.max(1, bestSize);
+        }
+
+        /**
+         * Repaints a single cell of the grid.
+         */
+        private void repaintSlot(int slot) {
+            repaint((slot % config.columns) * config.cellWidth, (slot / config.columns) * config.cellHeight,
+                    config.cellWidth, config.cellHeight);
         }
 
         private void placeCard(int slot, int card) {
-            int row = slot / config.columns;
-            int column = slot % config.columns;
-            grid[row][column] = deck[card];
-            validate();
-            repaint();
+            grid[slot] = deck[card];
+            repaintSlot(slot);
         }
 
         private void removeCard(int slot) {
-            int row = slot / config.columns;
-            int column = slot % config.columns;
-            grid[row][column] = emptyCard;
-            validate();
-            repaint();
+            grid[slot] = emptyCard;
+            repaintSlot(slot);
         }
 
         private void placeToken(int player, int slot) {
-            int row = slot / config.columns;
-            int column = slot % config.columns;
-            playerTokens[player][row][column] = true;
-            tokenText[row][column].setText(generatePlayersTokenText(row, column));
+            tokens[slot * tokenWords + player / 64] |= 1L << player;
+            repaintMarker(player, slot);
         }
 
         private void removeTokens() {
@@ -177,38 +216,71 @@ public class UserInterfaceSwing extends JFrame implements UserInterface {
         }
 
         private void removeTokens(int slot) {
-            int row = slot / config.columns;
-            int column = slot % config.columns;
-            for (int player = 0; player < playerTokens.length; player++) {
-                playerTokens[player][row][column] = false;
-                tokenText[row][column].setText(generatePlayersTokenText(row, column));
+            boolean any = false;
+            for (int word = slot * tokenWords; word < (slot + 1) * tokenWords; word++) {
+                any |= tokens[word] != 0;
+                tokens[word] = 0;
             }
+            if (any) repaintSlot(slot);
         }
 
         private void removeToken(int player, int slot) {
-            int row = slot / config.columns;
-            int column = slot % config.columns;
-            playerTokens[player][row][column] = false;
-            tokenText[row][column].setText(generatePlayersTokenText(row, column));
+            tokens[slot * tokenWords + player / 64] &= ~(1L << player);
+            repaintMarker(player, slot);
+        }
+
+        /**
+         * Repaints the marker of a player in a cell only.
+         */
+        private void repaintMarker(int player, int slot) {
+            Rectangle cell = new Rectangle((slot % config.columns) * config.cellWidth,
+                    (slot / config.columns) * config.cellHeight, config.cellWidth, config.cellHeight);
+            Rectangle marker = new Rectangle(cell.x + (player % markersPerRow) * markerSize,
+                    cell.y + (player / markersPerRow) * markerSize, markerSize, markerSize);
+            repaint(marker.intersection(cell));
         }
 
-        private String generatePlayersTokenText(int row, int column) {
-            String text = "";
-            for (int player = 0; player < config.players; player++) {
-                if (playerTokens[player][row][column])
-                    text = text.concat(config.playerNames[player] + ", ");
+        /**
+         * Draws the token markers of a cell, one coloured dot per player (iterating the bits of the slot's bitmask).
+         */
+        private void paintTokens(Graphics g, int slot, int x, int y) {
+            // clipped to the cell, so a marker can never be painted over a neighbouring card
+            Graphics cell = g.create(x, y, config.cellWidth, config.cellHeight);
+            try {
+                for (int word = 0; word < tokenWords; word++) {
+                    for (long bits = tokens[slot * tokenWords + word]; bits != 0; bits &= bits - 1) {
+                        int player = word * 64 + Long.numberOfTrailingZeros(bits);
+                        int markerX = (player % markersPerRow) * markerSize;
+                        int markerY = (player / markersPerRow) * markerSize;
+                        cell.setColor(playerColors[player]);
+                        cell.fillOval(markerX + 1, markerY + 1, markerSize - 2, markerSize - 2);
+                        cell.setColor(Color.BLACK);
+                        cell.drawOval(markerX + 1, markerY + 1, markerSize - 2, markerSize - 2);
+                    }
+                }
+            } finally {
+                cell.dispose();
             }
-            if (text.length() < 2)
-                return "";
-            return text.substring(0, text.length() - 2);
         }
 
         @Override
         public void paintComponent(Graphics g) {
-            // draw card images
-            for (int row = 0; row < config.rows; row++)
-                for (int column = 0; column < config.columns; column++)
-                    g.drawImage(grid[row][column], (column * config.cellWidth), (row * config.cellHeight), this);
+            // draw the card images of the cells in the clip (the visible part of the grid) only
+            Rectangle clip = g.getClipBounds();
+            if (clip == null) clip = new Rectangle(getSize());
+            int firstColumn = Math.max(0, clip.x / config.cellWidth);
+            int lastColumn = Math.min(config.columns - 1, (clip.x + clip.width - 1) / config.cellWidth);
+            int firstRow = Math.max(0, clip.y / config.cellHeight);
+            int lastRow = Math.min(config.rows - 1, (clip.y + clip.height - 1) / config.cellHeight);
+            for (int row = firstRow; row <= lastRow; row++)
+                for (int column = firstColumn; column <= lastColumn; column++) {
+                    int slot = row * config.columns + column;
+                    int x = column * config.cellWidth, y = row * config.cellHeight;
+                    g.drawImage(grid[slot], x, y, this);
+                    g.setColor(Color.BLACK);
+                    g.drawRect(x, y, config.cellWidth - 1, config.cellHeight - 1);
+                    paintTokens(g, slot, x, y);
+                }
         }
     }
 
@@ -221,7 +293,7 @@ public class UserInterfaceSwing extends JFrame implements UserInterface {
             this.setPreferredSize(new Dimension(config.players * config.playerCellWidth, config.rows * config.playerCellHeight));
             this.playersTable = new JLabel[2][config.players];
             for (int i = 0; i < config.players; i++) {
-                this.playersTable[0][i] = new JLabel(config.playerNames[i]);
+                this.playersTable[0][i] = new JLabel(config.playerNames[i], new MarkerIcon(playerColors[i]), JLabel.CENTER);
                 this.playersTable[0][i].setFont(new Font("Serif", Font.BOLD, config.fontSize));
                 this.playersTable[0][i].setHorizontalAlignment(JLabel.CENTER);
                 this.add(playersTable[0][i]);
@@ -250,6 +322,36 @@ public class UserInterfaceSwing extends JFrame implements UserInterface {
         }
     }
 
+    /**
+     * The token marker of a player, shown next to the player's name.
+     */
+    private static class MarkerIcon implements Icon {
+
+        private final Color color;
+
+        private MarkerIcon(Color color) {
+            this.color = color;
+        }
+
+        @Override
+        public void paintIcon(Component c, Graphics g, int x, int y) {
+            g.setColor(color);
+            g.fillOval(x, y, getIconWidth() - 1, getIconHeight() - 1);
+            g.setColor(Color.BLACK);
+            g.drawOval(x, y, getIconWidth() - 1, getIconHeight() - 1);
+        }
+
+        @Override
+        public int getIconWidth() {
+            return 12;
+        }
+
+        @Override
+        public int getIconHeight() {
+            return 12;
+        }
+    }
+
     private class WinnerPanel extends JPanel {
 
         private final JLabel winnerAnnouncement;
@@ -4,6 +4,7 @@ import java.util.Arrays;
 import java.util.LinkedList;
 import java.util.List;
 import java.util.concurrent.ThreadLocalRandom;
+import java.util.stream.Collectors;
 import java.util.stream.IntStream;
 
 /**
@@ -11,10 +12,68 @@ import java.util.stream.IntStream;
  */
 public class UtilImpl implements Util {
 
-    private final Config config;
+    private volatile Config config;
+
+    /**
+     * The set completion table: third[a * deckSize + b] is the only card that forms a legal set with cards a and b.
+     * Only available for 3 card sets, and only if it fits in config.setTableMaxBytes (null otherwise).
+     */
+    private final short[] third;
+
+    /**
+     * Finds the sets of any other size.
+     */
+    private final SetEngine setEngine;
 
     public UtilImpl(Config config) {
         this.config = config;
+        this.third = createCompletionTable(config);
+        this.setEngine = new SetEngine(config);
+    }
+
+    private short[] createCompletionTable(Config config) {
+        long bytes = (long) config.deckSize * config.deckSize * Short.BYTES;
+        if (config.featureSize != 3 || config.deckSize > Short.MAX_VALUE || bytes > config.setTableMaxBytes)
+            return null;
+
+        int n = config.deckSize;
+        int[][] features = new int[n][config.featureCount];
+        for (int card = 0; card < n; ++card)
+            cardToFeatures(card, features[card]);
+
+        // in a legal set each feature sums to 0 (mod 3), so the third feature is -(a + b) (mod 3)
+        short[] table = new short[n * n];
+        for (int a = 0; a < n; ++a)
+            for (int b = 0; b < n; ++b) {
+                int c = 0;
+                for (int i = 0; i < config.featureCount; ++i)
+                    c = c * 3 + (6 - features[a][i] - features[b][i]) % 3;
+                table[a * n + b] = (short) c;
+            }
+        return table;
+    }
+
+    /**
+     * Returns the only card that forms a legal set with the two given cards.
+     *
+     * @return - the completing card id, or -1 if the completion table is not available.
+     */
+    public int completeSet(int a, int b) {
+        return third == null ? -1 : third[a * config.deckSize + b];
+    }
+
+    /**
+     * @return - true iff the set completion table is available (i.e. completeSet never returns -1).
+     */
+    public boolean hasCompletionTable() {
+        return third != null;
+    }
+
+    /**
+     * Replaces the configuration object (only runtime parameters, such as the random spin cycles, may change).
+     */
+    void updateConfig(Config config) {
+        this.config = config;
     }
 
     private void cardToFeatures(int card, int[] features) {
@@ -40,6 +99,9 @@ public class UtilImpl implements Util {
 
     @Override
     public boolean testSet(int[] cards) {
+        if (third != null && cards.length == 3 && isCard(cards[0]) && isCard(cards[1]))
+            return third[cards[0] * config.deckSize + cards[1]] == cards[2];
+
         int[][] features = cardsToFeatures(Arrays.copyOf(cards, cards.length));
         for (int i = 0; i < config.featureCount; ++i) {
             boolean sameSame = true, butDifferent = true;
@@ -64,29 +126,29 @@ public class UtilImpl implements Util {
         return true;
     }
 
+    /**
+     * @return - true iff the id is a card of the deck (other ids are only tested arithmetically).
+     */
+    private boolean isCard(int card) {
+        return card >= 0 && card < config.deckSize;
+    }
+
+    /**
+     * @return - a list of all the card ids of the deck.
+     */
+    List<Integer> fullDeck() {
+        return IntStream.range(0, config.deckSize).boxed().collect(Collectors.toList());
+    }
+
     @Override
     public List<int[]> findSets(List<Integer> deck, int count) {
-        LinkedList<int[]> sets = new LinkedList<>();
-        int n = deck.size();
-        int r = config.featureSize;
-        int[] combination = new int[r];
-
-        for (int i = 0; i < r; ++i)
-            combination[i] = i;
-
-        while (combination[r - 1] < deck.size()) {
-            int[] cards = Arrays.stream(combination).map(deck::get).sorted().toArray();
-            if (testSet(cards)) {
-                sets.add(cards);
-                if (sets.size() >= count) return sets;
-            }
+        if (config.featureSize != 3) return setEngine.findSets(deck, count);
 
-            // generate next combination in lexicographic order
-            int t = r - 1;
-            while (t != 0 && combination[t] == n - r + t) --t;
-            combination[t]++;
-            for (int i = t + 1; i < r; i++) combination[i] = combination[i - 1] + 1;
-        }
+        LinkedList<int[]> sets = new LinkedList<>();
+        new VectorizedSetSearch(config, deck).search((a, b, c) -> {
+            sets.add(new int[]{a, b, c});
+            return sets.size() < count;
+        });
         return sets;
     }
 
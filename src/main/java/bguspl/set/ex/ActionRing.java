@@ -0,0 +1,158 @@
+package bguspl.set.ex;
+
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * A bounded multi-producer ring buffer of slots (the key presses of a player).
+ * Adding never blocks and never allocates: when the buffer is full the new slot is dropped, or (in overwrite mode)
+ * the oldest slot is discarded to make room for it. The consumer parks while the buffer is empty.
+ *
+ * Every cell has a sequence number telling whether it is free for the producer of a given index or holds the slot of
+ * a given index for the consumer. Producers (e.g. the keyboard and the network threads of the same player) claim an
+ * index by a CAS on the tail before writing its cell and publish the slot by advancing the cell's sequence, and slots
+ * are removed the same way through the head, so the consumer, an overwriting producer and clear() (e.g. by the dealer)
+ * may all remove slots concurrently.
+ */
+class ActionRing {
+
+    private final int[] slots;
+
+    /**
+     * The sequence number of each cell: index if it is free for the producer of index, index + 1 if it holds the slot
+     * of index.
+     */
+    private final AtomicLongArray sequence;
+
+    /**
+     * The index of the oldest slot.
+     */
+    private final AtomicLong head = new AtomicLong();
+
+    /**
+     * The index of the next slot to add.
+     */
+    private final AtomicLong tail = new AtomicLong();
+
+    private final boolean overwrite;
+
+    /**
+     * The number of slots dropped or overwritten because the buffer was full.
+     */
+    private final AtomicLong drops = new AtomicLong();
+
+    /**
+     * The consumer thread while it is parked waiting for a slot (null otherwise).
+     */
+    private volatile Thread waiter;
+
+    /**
+     * @param capacity  - the maximal number of slots in the buffer.
+     * @param overwrite - true to discard the oldest slot when the buffer is full, false to drop the new one.
+     */
+    ActionRing(int capacity, boolean overwrite) {
+        if (capacity <= 0) throw new IllegalArgumentException("capacity must be positive: " + capacity);
+        this.slots = new int[capacity];
+        this.sequence = new AtomicLongArray(capacity);
+        for (int i = 0; i < capacity; i++)
+            sequence.set(i, i);
+        this.overwrite = overwrite;
+    }
+
+    /**
+     * Adds a slot to the buffer (may be called by several producers at once).
+     *
+     * @return - false iff the slot was dropped because the buffer is full.
+     */
+    boolean offer(int slot) {
+        while (true) {
+            long t = tail.get();
+            int cell = (int) (t % slots.length);
+            long s = sequence.get(cell);
+            if (s == t) {
+                if (tail.compareAndSet(t, t + 1)) {
+                    slots[cell] = slot;
+                    sequence.set(cell, t + 1);
+                    break;
+                }
+            } else if (s < t) {
+                // the cell still holds the slot of t - capacity: the buffer is full
+                if (!overwrite) {
+                    drops.incrementAndGet();
+                    return false;
+                }
+                if (poll() >= 0) drops.incrementAndGet();
+            }
+            // otherwise another producer claimed t, retry with the new tail
+        }
+        Thread consumer = waiter;
+        if (consumer != null) LockSupport.unpark(consumer);
+        return true;
+    }
+
+    /**
+     * Removes the oldest slot from the buffer.
+     *
+     * @return - the slot, or -1 if the buffer is empty.
+     */
+    int poll() {
+        while (true) {
+            long h = head.get();
+            int cell = (int) (h % slots.length);
+            long s = sequence.get(cell);
+            if (s == h + 1) {
+                if (head.compareAndSet(h, h + 1)) {
+                    int slot = slots[cell];
+                    sequence.set(cell, h + slots.length);
+                    return slot;
+                }
+            } else if (s < h + 1) {
+                // the slot of h was not published yet: the buffer is empty
+                return -1;
+            }
+            // otherwise another thread removed h, retry with the new head
+        }
+    }
+
+    /**
+     * Removes the oldest slot from the buffer, parking the consumer until one is available (consumer only).
+     *
+     * @return - the slot.
+     * @throws InterruptedException - if the consumer is interrupted while waiting.
+     */
+    int take() throws InterruptedException {
+        while (true) {
+            int slot = poll();
+            if (slot >= 0) return slot;
+            waiter = Thread.currentThread();
+            try {
+                if (isEmpty()) LockSupport.park(this);
+            } finally {
+                waiter = null;
+            }
+            if (Thread.interrupted()) throw new InterruptedException();
+        }
+    }
+
+    private boolean isEmpty() {
+        long h = head.get();
+        return sequence.get((int) (h % slots.length)) < h + 1;
+    }
+
+    /**
+     * Discards all the slots in the buffer (may be called by any thread).
+     */
+    void clear() {
+        while (poll() >= 0) ;
+    }
+
+    int size() {
+        long h = head.get();
+        return (int) Math.max(0, Math.min(slots.length, tail.get() - h));
+    }
+
+    long drops() {
+        return drops.get();
+    }
+}
@@ -0,0 +1,106 @@
+package bguspl.set.ex;
+
+/**
+ * A small fixed size cache of claim verdicts, keyed by the sorted card ids of the claim.
+ * The keys are packed into longs and kept in an open addressing table with a short linear probe; when the probe finds
+ * no free entry, the home entry is overwritten. Not thread safe: used by the dealer only.
+ */
+class ClaimVerdictCache {
+
+    private static final int MAX_PROBES = 4;
+    static final int UNKNOWN = -1;
+
+    /**
+     * The packed keys (0 marks an empty entry, so keys are stored plus one).
+     */
+    private final long[] keys;
+    private final boolean[] verdicts;
+    private final int mask;
+    private final int bitsPerCard;
+    private final int[] sorted;
+
+    private volatile long hits;
+    private volatile long misses;
+
+    /**
+     * @param capacity    - the maximal number of entries (rounded up to a power of two, 0 disables the cache).
+     * @param deckSize    - the number of cards in the deck.
+     * @param featureSize - the number of cards in a claim.
+     */
+    ClaimVerdictCache(int capacity, int deckSize, int featureSize) {
+        int size = capacity <= 0 ? 0 : Integer.highestOneBit(Math.max(1, capacity - 1)) << 1;
+        bitsPerCard = Math.max(1, 32 - Integer.numberOfLeadingZeros(deckSize - 1));
+        boolean packable = (long) bitsPerCard * featureSize < Long.SIZE;
+        keys = new long[packable ? size : 0];
+        verdicts = new boolean[keys.length];
+        mask = keys.length - 1;
+        sorted = new int[featureSize];
+    }
+
+    /**
+     * @return - the packed key of the claim plus one, or 0 if the claim cannot be cached.
+     */
+    private long key(int[] cards) {
+        if (keys.length == 0 || cards.length != sorted.length) return 0;
+        for (int i = 0; i < cards.length; i++) { // insertion sort (claims are tiny)
+            int card = cards[i], j = i;
+            for (; j > 0 && sorted[j - 1] > card; j--) sorted[j] = sorted[j - 1];
+            sorted[j] = card;
+        }
+        long key = 0;
+        for (int card : sorted) key = (key << bitsPerCard) | card;
+        return key + 1;
+    }
+
+    private int home(long key) {
+        long hash = key * 0x9E3779B97F4A7C15L;
+        return (int) (hash >>> 32) & mask;
+    }
+
+    /**
+     * @param cards - the cards of the claim.
+     * @return - 1 if the claim is known to be a legal set, 0 if known not to be, UNKNOWN otherwise.
+     */
+    int get(int[] cards) {
+        long key = key(cards);
+        if (key != 0) {
+            int home = home(key);
+            for (int probe = 0; probe < MAX_PROBES; probe++) {
+                int i = (home + probe) & mask;
+                if (keys[i] == key) {
+                    hits++;
+                    return verdicts[i] ? 1 : 0;
+                }
+                if (keys[i] == 0) break;
+            }
+        }
+        misses++;
+        return UNKNOWN;
+    }
+
+    /**
+     * Records the verdict of a claim.
+     */
+    void put(int[] cards, boolean isSet) {
+        long key = key(cards);
+        if (key == 0) return;
+        int home = home(key), target = home;
+        for (int probe = 0; probe < MAX_PROBES; probe++) {
+            int i = (home + probe) & mask;
+            if (keys[i] == 0 || keys[i] == key) {
+                target = i;
+                break;
+            }
+        }
+        keys[target] = key;
+        verdicts[target] = isSet;
+    }
+
+    long hits() {
+        return hits;
+    }
+
+    long misses() {
+        return misses;
+    }
+}
@@ -1,9 +1,15 @@
 package bguspl.set.ex;
 
 import bguspl.set.Env;
+import bguspl.set.GameResult;
+import bguspl.set.ThreadLogger;
+import bguspl.set.UtilImpl;
 
+import java.util.ArrayList;
 import java.util.List;
-import java.util.Random;
+import java.io.IOException;
+import java.nio.BufferUnderflowException;
+import java.nio.ByteBuffer;
 import java.util.stream.Collectors;
 import java.util.Collections;
 import java.util.stream.IntStream;
@@ -41,18 +47,83 @@ public class Dealer implements Runnable {
 
     private long lastUpdateTime = System.currentTimeMillis();
 
-    private Thread[] playersThreads;
+    /**
+     * Starts and stops the threads of the players.
+     */
+    private final GameLifecycle lifecycle;
+
+    /**
+     * Game statistics (written by the dealer thread only).
+     */
+    private final long startTime = System.currentTimeMillis();
+    private volatile int deckRemaining;
+    private volatile int setsCollected;
+    private volatile int invalidClaims;
+    private volatile int reshuffles;
+    private final int[] claims;
+    private final int[] penalties;
+
+    /**
+     * The scores awarded by the dealer and the live ranking of the players.
+     */
+    private final Scoreboard scoreboard;
+
+    /**
+     * The seed of the random number generator used to deal the cards.
+     */
+    private long seed;
+    private final GameRandom random;
+
+    /**
+     * Saves the state of the game periodically (null if checkpoints are disabled).
+     */
+    private volatile GameCheckpoint checkpoint;
+
+    /**
+     * The verdicts of recent claims (wrong claims are often repeated by computer players).
+     */
+    private final ClaimVerdictCache verdictCache;
+
+    /**
+     * True iff claims are tested with the set completion table (a single lookup, cheaper than the cache).
+     */
+    private final boolean completionTable;
+
+    /**
+     * What to do when the table has no legal set, and whether the table changed since it was last checked for one.
+     */
+    private final ReshufflePolicy reshufflePolicy;
+    private boolean tableChanged;
+
+    /**
+     * The number of times the partial reshuffle policy replaces cards before reshuffling all of them.
+     */
+    private static final int PARTIAL_ATTEMPTS = 3;
 
     private final int SECOND = 1000;
 
     private final int MILISECOND = 1;
 
     public Dealer(Env env, Table table, Player[] players) {
+        this(env, table, players, env.config.seed);
+    }
+
+    public Dealer(Env env, Table table, Player[] players, long seed) {
         this.env = env;
         this.table = table;
         this.players = players;
+        this.seed = seed;
+        random = new GameRandom(seed);
+        claims = new int[players.length];
+        penalties = new int[players.length];
+        scoreboard = new Scoreboard(players.length);
+        verdictCache = new ClaimVerdictCache(env.config.verdictCacheSize, env.config.deckSize, env.config.featureSize);
+        completionTable = env.util instanceof UtilImpl && ((UtilImpl) env.util).hasCompletionTable();
+        reshufflePolicy = ReshufflePolicy.of(env.config.reshufflePolicy, env.logger);
         deck = IntStream.range(0, env.config.deckSize).boxed().collect(Collectors.toList());
-        playersThreads = new Thread[players.length];
+        deckRemaining = deck.size();
+        lifecycle = new GameLifecycle(env.logger, players);
+        ThreadLogger.profileLock("table", table);
     }
 
     /**
@@ -62,114 +133,397 @@ public class Dealer implements Runnable {
     public void run() {
         env.logger.info("thread " + Thread.currentThread().getName() + " starting.");
         createAndRunPlayersThreads();
-        while (!shouldFinish()) {
-            placeCardsOnTable();// עשינו
-            timerLoop();// בתהליכים
-            updateTimerDisplay(false);
+        if (!shouldFinish()) {
+            while (step())
+                sleepUntilWokenOrTimeout();
+        }
+        finish();
+        env.logger.info("thread " + Thread.currentThread().getName() + " terminated.");
+    }
+
+    /**
+     * Starts the players threads (used when the dealer is run by a DealerPool instead of its own thread).
+     *
+     * @return - false iff the game is already over.
+     */
+    boolean start() {
+        createAndRunPlayersThreads();
+        return !shouldFinish();
+    }
+
+    /**
+     * Performs a single non-blocking turn of the dealer: updates the countdown, handles the waiting claims (or
+     * reshuffles the deck if the countdown timed out), fills the table and applies the reshuffle policy if the table
+     * has no set.
+     *
+     * @return - false iff the game is over.
+     */
+    boolean step() {
+        if (terminate) return false;
+        updateTimerDisplay(false);
+        if (System.currentTimeMillis() >= reshuffleTime) {
             removeAllCardsFromTable();
+            if (shouldFinish()) return false;
+        } else {
+            removeCardsFromTable();
         }
+        placeCardsOnTable();
+        if (tableChanged) {
+            tableChanged = false;
+            if (!reviveTable()) return false;
+        }
+        GameCheckpoint checkpoint = this.checkpoint;
+        if (checkpoint != null) checkpoint.checkpointIfDue(this);
+        return !terminate;
+    }
+
+    /**
+     * Announces the winners and stops the players.
+     */
+    void finish() {
         announceWinners();
         stopAllRunningPlayers();
-        env.logger.info("thread " + Thread.currentThread().getName() + " terminated.");
+        // a game that was not terminated early is over for good, so it must not be resumed
+        GameCheckpoint checkpoint = this.checkpoint;
+        if (checkpoint != null && !terminate) checkpoint.delete();
     }
 
     /**
-     * The inner loop of the dealer thread that runs as long as the countdown did
-     * not time out.
+     * Saves the state of the game with the given checkpoint periodically (see Config.checkpointMillis).
      */
-    private void timerLoop() {
-        while (!terminate && System.currentTimeMillis() < reshuffleTime) {
-            sleepUntilWokenOrTimeout();
-            updateTimerDisplay(false);
-            removeCardsFromTable();
-            placeCardsOnTable();
+    public void setCheckpoint(GameCheckpoint checkpoint) {
+        this.checkpoint = checkpoint;
+    }
+
+    /**
+     * Encodes the state of the game: the seed and the random generator state, the remaining countdown, the statistics,
+     * the deck (in order), the cards on the table, the tokens of the players and the players' scores and freezes.
+     */
+    void writeState(ByteBuffer out) {
+        synchronized (table) {
+            long now = System.currentTimeMillis();
+            out.putLong(seed).putLong(random.state());
+            out.putLong(reshuffleTime == Long.MAX_VALUE ? -1 : Math.max(0, reshuffleTime - now));
+            out.putInt(setsCollected).putInt(invalidClaims).putInt(reshuffles);
+            out.putInt(deck.size());
+            for (int card : deck)
+                out.putInt(card);
+            for (int slot = 0; slot < env.config.tableSize; slot++)
+                out.putInt(table.slotToCard[slot] == null ? -1 : table.slotToCard[slot]);
+            for (Player player : players) {
+                List<Integer> tokens = table.getTokens(player.id);
+                out.putInt(tokens.size());
+                for (int slot : tokens)
+                    out.putInt(slot);
+            }
+            for (Player player : players)
+                out.putInt(scoreboard.score(player.id)).putInt(claims[player.id]).putInt(penalties[player.id])
+                        .putLong(player.frozenMillis());
+        }
+    }
+
+    /**
+     * Restores the state of the game encoded by writeState (must be called before the game starts).
+     * A complete set of tokens is not restored, since the claim it was waiting for is not part of the checkpoint.
+     *
+     * @throws IOException - if the state is truncated or does not fit the configuration.
+     */
+    void readState(ByteBuffer in) throws IOException {
+        try {
+            long seed = in.getLong();
+            long state = in.getLong();
+            long countdown = in.getLong();
+            int sets = in.getInt(), invalid = in.getInt(), shuffles = in.getInt();
+            // every card is in the deck or on the table at most once
+            boolean[] seen = new boolean[env.config.deckSize];
+            int[] cards = new int[count(in.getInt(), env.config.deckSize)];
+            for (int i = 0; i < cards.length; i++)
+                cards[i] = card(in.getInt(), seen);
+            int[] slots = new int[env.config.tableSize];
+            for (int slot = 0; slot < slots.length; slot++) {
+                int card = in.getInt();
+                slots[slot] = card < 0 ? -1 : card(card, seen);
+            }
+            int[][] tokens = new int[players.length][];
+            for (int id = 0; id < players.length; id++) {
+                tokens[id] = new int[count(in.getInt(), slots.length)];
+                for (int i = 0; i < tokens[id].length; i++) {
+                    tokens[id][i] = in.getInt();
+                    if (tokens[id][i] < 0 || tokens[id][i] >= slots.length || slots[tokens[id][i]] < 0)
+                        throw new IOException("invalid token in checkpoint: " + tokens[id][i]);
+                }
+            }
+            int[][] playerStates = new int[players.length][3];
+            long[] frozen = new long[players.length];
+            for (int id = 0; id < players.length; id++) {
+                for (int i = 0; i < 3; i++)
+                    playerStates[id][i] = in.getInt();
+                frozen[id] = in.getLong();
+            }
+
+            synchronized (table) {
+                this.seed = seed;
+                random.setSeed(state);
+                setsCollected = sets;
+                invalidClaims = invalid;
+                reshuffles = shuffles;
+                deck.clear();
+                for (int card : cards)
+                    deck.add(card);
+                deckRemaining = deck.size();
+
+                int[] placed = new int[slots.length];
+                int[] placedSlots = new int[slots.length];
+                int count = 0;
+                for (int slot = 0; slot < slots.length; slot++)
+                    if (slots[slot] >= 0) {
+                        placed[count] = slots[slot];
+                        placedSlots[count++] = slot;
+                    }
+                table.placeCards(placed, placedSlots, count);
+                for (int id = 0; id < players.length; id++)
+                    if (tokens[id].length < env.config.featureSize)
+                        for (int slot : tokens[id])
+                            table.placeToken(id, slot);
+
+                for (int id = 0; id < players.length; id++) {
+                    scoreboard.add(id, playerStates[id][0] - scoreboard.score(id));
+                    claims[id] = playerStates[id][1];
+                    penalties[id] = playerStates[id][2];
+                    players[id].restore(frozen[id]);
+                }
+                if (countdown >= 0) {
+                    lastUpdateTime = System.currentTimeMillis();
+                    reshuffleTime = lastUpdateTime + countdown;
+                    env.ui.setCountdown(countdown, countdown <= env.config.turnTimeoutWarningMillis);
+                }
+            }
+        } catch (BufferUnderflowException e) {
+            throw new IOException("truncated checkpoint");
         }
     }
 
+    private int card(int card, boolean[] seen) throws IOException {
+        if (card < 0 || card >= env.config.deckSize) throw new IOException("invalid card in checkpoint: " + card);
+        if (seen[card]) throw new IOException("duplicate card in checkpoint: " + card);
+        seen[card] = true;
+        return card;
+    }
+
+    private static int count(int count, int max) throws IOException {
+        if (count < 0 || count > max) throw new IOException("invalid count in checkpoint: " + count);
+        return count;
+    }
+
+    /**
+     * @return - the number of milliseconds until the next turn of the dealer should be performed (unless woken by a
+     * claim earlier). A table that is still being revived (see reviveTable) is retried right away.
+     */
+    long nextStepDelay() {
+        if (tableChanged) return MILISECOND;
+        return reshuffleTime - System.currentTimeMillis() <= env.config.turnTimeoutWarningMillis ? MILISECOND : SECOND;
+    }
+
     /**
      * Called when the game should be terminated.
      */
     public void terminate() {
-        // TODO implement
         this.terminate = true;
     }
 
     /**
      * Check if the game should be terminated or the game end conditions are met.
+     * The cards on the table count too, since a game resumed from a checkpoint starts with cards on the table.
      *
      * @return true iff the game should be finished.
      */
     private boolean shouldFinish() {
-        return terminate || env.util.findSets(deck, 1).size() == 0;
+        if (terminate) return true;
+        List<Integer> cards = new ArrayList<>(deck);
+        synchronized (table) {
+            for (Integer card : table.slotToCard)
+                if (card != null) cards.add(card);
+        }
+        return env.util.findSets(cards, 1).size() == 0;
     }
 
     /**
      * Checks cards should be removed from the table and removes them.
+     * All the waiting claims are judged in one batch, in the order they were submitted. A claim that shares a card
+     * with a set accepted earlier in the batch (or lost some of its tokens) is dropped without a penalty, and the
+     * cards of all the accepted sets are removed together.
      */
     private void removeCardsFromTable() {
-        // TODO implement
         synchronized (table) {
-            if (table.waitingPlayers.size() > 0) {
-                try {
-                    Player player = players[table.waitingPlayers.take()];
-                    int[] cards = player.getTokens();
-                    boolean isSet = env.util.testSet(cards);
-                    if (!isSet) {
-                        player.setPenaltyOrPoint(-1);
-                    } else {
-                        player.setPenaltyOrPoint(1);
+            if (table.waitingPlayers.isEmpty()) return;
+            List<Integer> claimants = new ArrayList<>();
+            table.waitingPlayers.drainTo(claimants);
 
-                        for (Player p : players) {
-                            if (p != player) {
-                                p.removeTokens(cards);
-                                if(table.waitingPlayers.contains(p.id) && p.numOfTokens() < env.config.featureSize) {
-                                    
-                                    table.waitingPlayers.remove(p.id);
-                                    synchronized (p) {
-                                        p.notifyAll();
-                                    }
-                                }
-                                p.clearActions();
-                            }    
-                        }
-                        for (int i = 0; i < cards.length; i++) {
-                            if (table.cardToSlot[cards[i]] < env.config.tableSize) {
-                                table.removeCard(table.cardToSlot[cards[i]]);
-                            }
+            boolean[] taken = new boolean[env.config.deckSize];
+            boolean[] scored = new boolean[players.length];
+            int[] slots = new int[env.config.tableSize];
+            int removed = 0;
+            for (int id : claimants) {
+                Player player = players[id];
+                int[] cards = player.getTokens();
+                if (cards.length == env.config.featureSize && !overlaps(cards, taken)) {
+                    claims[id]++;
+                    if (isLegalSet(cards)) {
+                        setsCollected++;
+                        scoreboard.add(id, 1);
+                        scored[id] = true;
+                        player.setPenaltyOrPoint(1);
+                        env.events.verdict(id, true);
+                        env.events.scoreChanged(id, scoreboard.score(id));
+                        for (int card : cards) {
+                            taken[card] = true;
+                            slots[removed++] = table.cardToSlot[card];
                         }
-                    }
-                    synchronized (player) {
-                        player.notifyAll();
+                    } else {
+                        invalidClaims++;
+                        penalties[id]++;
+                        player.setPenaltyOrPoint(-1);
+                        env.events.verdict(id, false);
                     }
                 }
-                catch (InterruptedException ignore) {
+                player.claimJudged();
+            }
+
+            if (removed > 0) {
+                int[] cards = new int[removed];
+                for (int i = 0; i < removed; i++)
+                    cards[i] = table.slotToCard[slots[i]];
+                for (Player p : players) {
+                    if (!scored[p.id]) {
+                        p.removeTokens(cards);
+                        p.clearActions();
+                    }
                 }
+                table.removeCards(slots, removed);
+                tableChanged = true;
             }
         }
     }
 
+    private static boolean overlaps(int[] cards, boolean[] taken) {
+        for (int card : cards)
+            if (taken[card]) return true;
+        return false;
+    }
+
+    /**
+     * Checks whether the cards of a claim form a legal set, consulting the verdict cache first (unless the completion
+     * table answers directly).
+     */
+    private boolean isLegalSet(int[] cards) {
+        if (completionTable) return env.util.testSet(cards);
+        int verdict = verdictCache.get(cards);
+        if (verdict != ClaimVerdictCache.UNKNOWN) return verdict == 1;
+        boolean isSet = env.util.testSet(cards);
+        verdictCache.put(cards, isSet);
+        return isSet;
+    }
+
     /**
      * Check if any cards can be removed from the deck and placed on the table.
      */
     private void placeCardsOnTable() {
-        // TODO implement
         synchronized (table) {
-            if (table.countCards() < env.config.tableSize) {
-                for (int i = 0; i < env.config.tableSize; i++) {
-                    if (table.slotToCard[i] == null) {
-                        if (deck.size() > 0) {
-                            Random rand = new Random();
-                            int randomIndex = rand.nextInt(deck.size());
-                            int card = deck.remove(randomIndex);
-                            table.placeCard(card, i);
-                        }
-                    }
-                }
-                if (!deck.isEmpty()) {
-                    updateTimerDisplay(true);
+            dealCards(dealSize());
+        }
+    }
+
+    /**
+     * @return - the number of cards dealt to the table (extra cards are only added by the reshuffle policy).
+     */
+    private int dealSize() {
+        if (reshufflePolicy == ReshufflePolicy.EXTRA_CARDS && env.config.tableSize > env.config.featureSize)
+            return env.config.tableSize - env.config.featureSize;
+        return env.config.tableSize;
+    }
+
+    /**
+     * Places random cards from the deck in the empty slots, until the table has the given number of cards.
+     */
+    private void dealCards(int target) {
+        int missing = Math.min(target, env.config.tableSize) - table.countCards();
+        if (missing <= 0) return;
+        int[] cards = new int[missing];
+        int[] slots = new int[missing];
+        int count = 0;
+        for (int slot = table.nextFreeSlot(0); slot < env.config.tableSize && count < missing && !deck.isEmpty();
+             slot = table.nextFreeSlot(slot + 1)) {
+            cards[count] = deck.remove(random.nextInt(deck.size()));
+            slots[count++] = slot;
+        }
+        if (count == 0) return;
+        table.placeCards(cards, slots, count);
+        tableChanged = true;
+        if (env.config.hints) table.hints();
+        deckRemaining = deck.size();
+        // when the rest of the deck fits on the table the countdown still has to be restarted if it is not running, or
+        // a table left without a legal set would never be reshuffled (and the game would never end)
+        if (!deck.isEmpty() || reshuffleTime == Long.MAX_VALUE || System.currentTimeMillis() >= reshuffleTime) {
+            updateTimerDisplay(true);
+        }
+    }
+
+    /**
+     * Applies the reshuffle policy until the table has a legal set, with at most one full reshuffle per step: if the
+     * table still has no set after it, the lock is released and the next step tries again.
+     *
+     * @return - false iff the game is over (no legal set is left in the deck).
+     */
+    private boolean reviveTable() {
+        if (reshufflePolicy == ReshufflePolicy.TIMEOUT) return true;
+        synchronized (table) {
+            boolean reshuffled = false;
+            for (int attempt = 0; !terminate && !table.hasSet(); attempt++) {
+                if (reshufflePolicy == ReshufflePolicy.EXTRA_CARDS && table.countCards() < env.config.tableSize
+                        && !deck.isEmpty()) {
+                    dealCards(table.countCards() + env.config.featureSize);
+                } else if (reshufflePolicy == ReshufflePolicy.PARTIAL && attempt < PARTIAL_ATTEMPTS
+                        && !deck.isEmpty()) {
+                    replaceCards(env.config.featureSize);
+                } else if (reshuffled) {
+                    tableChanged = true;
+                    return true;
+                } else {
+                    removeAllCardsFromTable();
+                    if (shouldFinish()) return false;
+                    dealCards(dealSize());
+                    reshuffled = true;
                 }
             }
+            tableChanged = false;
         }
+        return true;
+    }
+
+    /**
+     * Replaces random cards on the table with cards from the deck (the replaced cards return to the deck).
+     */
+    private void replaceCards(int count) {
+        int[] slots = new int[env.config.tableSize];
+        int occupied = 0;
+        for (int slot = table.nextOccupiedSlot(0); slot >= 0; slot = table.nextOccupiedSlot(slot + 1))
+            slots[occupied++] = slot;
+        count = Math.min(count, occupied);
+        int[] cards = new int[count];
+        for (int i = 0; i < count; i++) {
+            int j = i + random.nextInt(occupied - i);
+            int slot = slots[j];
+            slots[j] = slots[i];
+            slots[i] = slot;
+            cards[i] = table.slotToCard[slot];
+        }
+        table.removeCards(slots, count);
+        dealCards(dealSize());
+        for (int card : cards)
+            deck.add(card);
+        deckRemaining = deck.size();
+        reshuffles++;
+        env.events.reshuffle(count);
     }
 
     /**
@@ -177,21 +531,12 @@ public class Dealer implements Runnable {
      * purpose.
      */
     private void sleepUntilWokenOrTimeout() {
-        // TODO implement
-        if (reshuffleTime - System.currentTimeMillis() <= env.config.turnTimeoutWarningMillis) {
-            try {
-                synchronized (table) {
-                    table.wait(MILISECOND);
-                }
-            } catch (InterruptedException e) {
-            }
-        } else {
-            try {
-                synchronized (table) {
-                    table.wait(SECOND);
-                }
-            } catch (InterruptedException e) {
+        try {
+            synchronized (table) {
+                // a claim submitted since the last turn has already notified the table
+                if (table.waitingPlayers.isEmpty()) table.wait(nextStepDelay());
             }
+        } catch (InterruptedException e) {
         }
     }
 
@@ -199,7 +544,6 @@ public class Dealer implements Runnable {
      * Reset and/or update the countdown and the countdown display.
      */
     private void updateTimerDisplay(boolean reset) {
-        // TODO implement
         if (reset) {
             reshuffleTime = env.config.turnTimeoutMillis; // Reset reshuffleTime to 1 minute
             env.ui.setCountdown(reshuffleTime, false);
@@ -220,60 +564,92 @@ public class Dealer implements Runnable {
      * Returns all the cards from the table to the deck.
      */
     private void removeAllCardsFromTable() {
-        // TODO implement
-        for (int i = 0; i < env.config.tableSize; i++) {
-            if (table.slotToCard[i] != null) {
-                deck.add(table.slotToCard[i]);
-                table.removeCard(i);
+        int[] slots = new int[env.config.tableSize];
+        int count = 0;
+        // the removed cards take the players' tokens with them, which are only changed under the table lock
+        synchronized (table) {
+            for (int slot = table.nextOccupiedSlot(0); slot >= 0; slot = table.nextOccupiedSlot(slot + 1)) {
+                deck.add(table.slotToCard[slot]);
+                slots[count++] = slot;
             }
+            table.removeCards(slots, count);
         }
         if (!deck.isEmpty()) {
-            Collections.shuffle(deck);
+            Collections.shuffle(deck, random);
         }
+        deckRemaining = deck.size();
+        reshuffles++;
+        env.events.reshuffle(count);
     }
 
     /**
      * Check who is/are the winner/s and displays them.
      */
     private void announceWinners() {
-        // TODO implement
-        Player winner = null;
-        for (Player player : players) {
-            if (winner == null || player.score() > winner.score()) {
-                winner = player;
-            }
-        }
+        int[] winners = scoreboard.leaders();
+        for (int id : winners)
+            env.ui.setScore(id, scoreboard.score(id));
+        env.ui.announceWinner(winners);
+    }
 
-        if (players[0].score() == players[1].score()) {
-            env.ui.setScore(players[0].id, players[0].score());
-            env.ui.setScore(players[1].id, players[1].score());
-            env.ui.announceWinner(new int[] { players[0].id, players[1].id });
-        } else {
-            env.ui.setScore(winner.id, winner.score());
-            env.ui.announceWinner(new int[] { winner.id });
-        }
+    public long uptimeMillis() {
+        return System.currentTimeMillis() - startTime;
     }
 
-    private void createAndRunPlayersThreads() {
-        for (int i = 0; i < playersThreads.length; i++) {
-            playersThreads[i] = new Thread(this.players[i], "Player number " + i);
-            synchronized (players[i]) {
-
-                playersThreads[i].start();
-                try {
-                    players[i].wait();
-                } catch (InterruptedException ignored) {
-                }
+    public int deckRemaining() {
+        return deckRemaining;
+    }
 
-            }
+    public int setsCollected() {
+        return setsCollected;
+    }
+
+    public int invalidClaims() {
+        return invalidClaims;
+    }
+
+    public int reshuffles() {
+        return reshuffles;
+    }
+
+    public Scoreboard scoreboard() {
+        return scoreboard;
+    }
+
+    public long startupMicros() {
+        return lifecycle.startupNanos() / 1000;
+    }
+
+    public long verdictCacheHits() {
+        return verdictCache.hits();
+    }
+
+    public long verdictCacheMisses() {
+        return verdictCache.misses();
+    }
+
+    /**
+     * @return - the outcome of the game (should be called after the game is over).
+     */
+    public GameResult result() {
+        String[] strategies = new String[players.length];
+        for (int i = 0; i < players.length; i++)
+            strategies[i] = players[i].strategy();
+        int[] scores = scoreboard.scores();
+        return new GameResult(seed, env.config.hash(), System.currentTimeMillis(), uptimeMillis(), strategies, scores,
+                claims.clone(), penalties.clone());
+    }
+
+    private void createAndRunPlayersThreads() {
+        try {
+            lifecycle.start(env.config.shutdownTimeoutMillis);
+        } catch (InterruptedException e) {
+            terminate();
         }
     }
 
     private void stopAllRunningPlayers() {
-        for (int i = playersThreads.length-1; i >=0 ; i--) {
-            synchronized (players[i]) {
-                players[i].terminate();            
-                }
-        }
+        if (!lifecycle.stop(env.config.shutdownTimeoutMillis))
+            env.logger.warning("some players did not terminate within " + env.config.shutdownTimeoutMillis + " ms");
     }
 }
@@ -0,0 +1,133 @@
+package bguspl.set.ex;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.logging.Logger;
+
+/**
+ * Runs the dealers of many concurrent tables on a small pool of threads (instead of a thread per dealer).
+ * Each dealer performs one turn at a time on the shared scheduler, and its next turn is scheduled according to its
+ * countdown, or immediately when one of its players submits a claim.
+ * A turn blocks its thread while the table delays a card placement or removal, so with TableDelaySeconds > 0 the pool
+ * needs about as many threads as there are tables for the games to keep their pace.
+ */
+public class DealerPool {
+
+    private final Logger logger;
+    private final ScheduledExecutorService scheduler;
+    private final List<Match> matches = new ArrayList<>();
+    private final CountDownLatch finished;
+
+    /**
+     * The dealer of a single table and its scheduling state.
+     */
+    private class Match {
+        final Dealer dealer;
+        final int index;
+        Future<?> next; // guarded by this match's schedule lock
+        final Object scheduleLock = new Object();
+        volatile boolean woken;
+        boolean done; // guarded by the match itself
+
+        Match(Dealer dealer, int index) {
+            this.dealer = dealer;
+            this.index = index;
+        }
+    }
+
+    /**
+     * @param logger  - the logger.
+     * @param threads - the number of dealer threads.
+     * @param tables  - the number of tables (dealers) that will be run.
+     */
+    public DealerPool(Logger logger, int threads, int tables) {
+        this.logger = logger;
+        this.finished = new CountDownLatch(tables);
+        AtomicInteger count = new AtomicInteger();
+        this.scheduler = Executors.newScheduledThreadPool(threads,
+                r -> new Thread(r, "dealer-pool-" + count.getAndIncrement()));
+    }
+
+    /**
+     * Starts running the given dealer (and its players).
+     *
+     * @param dealer - the dealer of the table.
+     * @param table  - the table managed by the dealer.
+     */
+    public synchronized void submit(Dealer dealer, Table table) {
+        Match match = new Match(dealer, matches.size());
+        matches.add(match);
+        table.setClaimListener(() -> wake(match));
+        synchronized (match.scheduleLock) {
+            match.next = scheduler.submit(() -> {
+                logger.info("table " + match.index + " starting.");
+                if (dealer.start()) turn(match);
+                else end(match);
+            });
+        }
+    }
+
+    private void turn(Match match) {
+        synchronized (match) {
+            if (match.done) return;
+            match.woken = false;
+            if (!match.dealer.step()) {
+                end(match);
+                return;
+            }
+        }
+        synchronized (match.scheduleLock) {
+            long delay = match.woken ? 0 : match.dealer.nextStepDelay();
+            match.next = scheduler.schedule(() -> turn(match), delay, TimeUnit.MILLISECONDS);
+        }
+    }
+
+    private void end(Match match) {
+        synchronized (match) {
+            if (match.done) return;
+            match.done = true;
+            match.dealer.finish();
+        }
+        logger.info("table " + match.index + " terminated.");
+        finished.countDown();
+    }
+
+    /**
+     * Performs the next turn of the dealer as soon as possible (e.g. when a claim is waiting).
+     */
+    private void wake(Match match) {
+        synchronized (match.scheduleLock) {
+            match.woken = true;
+            // if the pending turn cannot be cancelled it is running, and it will reschedule itself immediately
+            if (match.next != null && match.next.cancel(false))
+                match.next = scheduler.submit(() -> turn(match));
+        }
+    }
+
+    /**
+     * Terminates all the games.
+     */
+    public synchronized void terminate() {
+        for (Match match : matches) {
+            match.dealer.terminate();
+            wake(match);
+        }
+    }
+
+    /**
+     * Waits until all the games are over and releases the dealer threads.
+     */
+    public void awaitTermination() throws InterruptedException {
+        try {
+            finished.await();
+        } finally {
+            scheduler.shutdownNow();
+        }
+    }
+}
@@ -0,0 +1,141 @@
+package bguspl.set.ex;
+
+import bguspl.set.Env;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+
+/**
+ * This class saves the state of a game to a compact binary checkpoint file, and restores a game from it.
+ * The dealer writes a checkpoint every config.checkpointMillis (encoding the state by hand into a reusable direct
+ * buffer, no reflection is involved), and the file is replaced atomically so a crash never leaves a partial one.
+ *
+ * File format: the magic "SETC", the format version, the shape of the game (feature size, feature count, table size
+ * and number of players, which must match the configuration), the game state (see Dealer.writeState).
+ */
+public class GameCheckpoint {
+
+    private static final int MAGIC = 0x53455443; // "SETC"
+
+    public static final int VERSION = 1;
+
+    private final Env env;
+
+    private final Path file;
+
+    private final Path temp;
+
+    private final ByteBuffer buffer;
+
+    private long nextCheckpoint;
+
+    /**
+     * @param env  - the game environment object.
+     * @param file - the checkpoint file.
+     */
+    public GameCheckpoint(Env env, Path file) {
+        this.env = env;
+        this.file = file;
+        this.temp = file.resolveSibling(file.getFileName() + ".tmp");
+        this.buffer = ByteBuffer.allocateDirect(maxBytes(env));
+        this.nextCheckpoint = System.currentTimeMillis() + env.config.checkpointMillis;
+    }
+
+    /**
+     * @return - an upper bound of the size of a checkpoint of a game with the given configuration.
+     */
+    private static int maxBytes(Env env) {
+        int header = 4 * 6;
+        int dealer = 8 * 3 + 4 * 3 + 4 + 4 * env.config.deckSize;
+        int table = 4 * env.config.tableSize + env.config.players * (4 + 4 * env.config.featureSize);
+        int players = env.config.players * (4 * 3 + 8);
+        return header + dealer + table + players;
+    }
+
+    /**
+     * Writes a checkpoint if one is due (called by the dealer between turns).
+     */
+    void checkpointIfDue(Dealer dealer) {
+        long now = System.currentTimeMillis();
+        if (now < nextCheckpoint) return;
+        nextCheckpoint = now + env.config.checkpointMillis;
+        try {
+            write(dealer);
+        } catch (IOException e) {
+            env.logger.warning("cannot write the checkpoint " + file + ": " + e.getMessage());
+        }
+    }
+
+    /**
+     * Writes the state of the game to the checkpoint file.
+     */
+    public void write(Dealer dealer) throws IOException {
+        long start = System.nanoTime();
+        buffer.clear();
+        buffer.putInt(MAGIC).putInt(VERSION);
+        for (int value : shape())
+            buffer.putInt(value);
+        dealer.writeState(buffer);
+        buffer.flip();
+        try (FileChannel channel = FileChannel.open(temp, StandardOpenOption.CREATE, StandardOpenOption.WRITE,
+                StandardOpenOption.TRUNCATE_EXISTING)) {
+            while (buffer.hasRemaining())
+                channel.write(buffer);
+        }
+        Files.move(temp, file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        env.logger.fine("checkpoint of " + buffer.limit() + " bytes written in " + (System.nanoTime() - start) / 1000 + " us");
+    }
+
+    /**
+     * Restores the state of the game from the checkpoint file (if there is one). Must be called before the game starts.
+     *
+     * @return - true iff the game was restored.
+     */
+    public boolean restore(Dealer dealer) throws IOException {
+        ByteBuffer in;
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+            if (channel.size() > buffer.capacity())
+                throw new IOException("checkpoint too large for this configuration: " + channel.size() + " bytes");
+            in = buffer;
+            in.clear();
+            while (in.hasRemaining())
+                if (channel.read(in) < 0) break;
+            in.flip();
+        } catch (NoSuchFileException e) {
+            return false;
+        }
+        if (in.remaining() < 24 || in.getInt() != MAGIC)
+            throw new IOException("not a checkpoint file: " + file);
+        int version = in.getInt();
+        if (version != VERSION)
+            throw new IOException("unsupported checkpoint version " + version);
+        for (int value : shape())
+            if (in.getInt() != value) {
+                env.logger.warning("the checkpoint " + file + " was taken with a different configuration, ignoring it");
+                return false;
+            }
+        dealer.readState(in);
+        return true;
+    }
+
+    private int[] shape() {
+        return new int[]{env.config.featureSize, env.config.featureCount, env.config.tableSize, env.config.players};
+    }
+
+    /**
+     * Deletes the checkpoint file (called when the game is over, so the next game does not resume it).
+     */
+    void delete() {
+        try {
+            Files.deleteIfExists(file);
+        } catch (IOException e) {
+            env.logger.warning("cannot delete the checkpoint " + file + ": " + e.getMessage());
+        }
+    }
+}
@@ -0,0 +1,92 @@
+package bguspl.set.ex;
+
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.logging.Logger;
+
+/**
+ * This class starts and stops the threads of the players of a game.
+ * All the player threads are started at once and the game starts when every one of them is ready (instead of starting
+ * them one at a time). On shutdown the players are terminated and interrupted, and their threads are joined in reverse
+ * order within a single deadline, so a hung player cannot delay the end of the game indefinitely.
+ */
+class GameLifecycle {
+
+    private final Logger logger;
+
+    private final Player[] players;
+
+    private final Thread[] threads;
+
+    private volatile long startupNanos;
+
+    GameLifecycle(Logger logger, Player[] players) {
+        this.logger = logger;
+        this.players = players;
+        this.threads = new Thread[players.length];
+    }
+
+    /**
+     * Starts the threads of all the players and waits (until the timeout passes) for all of them to be ready. The game
+     * goes on without waiting for the players that are not ready in time.
+     *
+     * @param timeoutMillis - the maximal number of milliseconds to wait for the players.
+     * @throws InterruptedException - if interrupted while waiting for the players (they keep running).
+     */
+    void start(long timeoutMillis) throws InterruptedException {
+        long begin = System.nanoTime();
+        CountDownLatch ready = new CountDownLatch(players.length);
+        for (int i = 0; i < players.length; i++) {
+            players[i].setReadySignal(ready);
+            threads[i] = new Thread(players[i], "Player number " + i);
+        }
+        for (Thread thread : threads)
+            thread.start();
+        if (!ready.await(timeoutMillis, TimeUnit.MILLISECONDS))
+            logger.warning(ready.getCount() + " of " + players.length + " players were not ready within "
+                    + timeoutMillis + " ms");
+        startupNanos = System.nanoTime() - begin;
+        logger.info("started " + players.length + " players in " + startupNanos / 1000 + " us");
+    }
+
+    /**
+     * Terminates all the players and waits (until the timeout passes) for their threads to finish.
+     *
+     * @param timeoutMillis - the maximal number of milliseconds to wait for all the threads together.
+     * @return - true iff all the player threads finished in time.
+     */
+    boolean stop(long timeoutMillis) {
+        for (int i = players.length - 1; i >= 0; i--)
+            players[i].terminate();
+
+        long deadline = System.currentTimeMillis() + timeoutMillis;
+        boolean interrupted = false;
+        for (int i = threads.length - 1; i >= 0; i--) {
+            if (threads[i] == null) continue;
+            long remaining = deadline - System.currentTimeMillis();
+            if (remaining <= 0) break;
+            try {
+                threads[i].join(remaining);
+            } catch (InterruptedException e) {
+                interrupted = true;
+                break;
+            }
+        }
+        if (interrupted) Thread.currentThread().interrupt();
+
+        int alive = 0;
+        for (Thread thread : threads)
+            if (thread != null && thread.isAlive()) {
+                alive++;
+                logger.warning("thread " + thread.getName() + " did not terminate in time.");
+            }
+        return alive == 0;
+    }
+
+    /**
+     * @return - the number of nanoseconds it took to start all the players (0 if they were not started yet).
+     */
+    long startupNanos() {
+        return startupNanos;
+    }
+}
@@ -0,0 +1,46 @@
+package bguspl.set.ex;
+
+import java.util.Random;
+
+/**
+ * A seedable random number generator (SplitMix64) whose whole state is a single long that can be saved and restored,
+ * so a game continues from a checkpoint with exactly the same cards it would have dealt without one.
+ * Not thread safe (unlike java.util.Random): it is only used by the thread of its dealer.
+ */
+class GameRandom extends Random {
+
+    private static final long serialVersionUID = 1L;
+
+    private static final long GOLDEN_GAMMA = 0x9e3779b97f4a7c15L;
+
+    private long state; // set by the super constructor via setSeed (so it must not have an initializer)
+
+    GameRandom(long seed) {
+        super(seed);
+    }
+
+    @Override
+    public void setSeed(long seed) {
+        state = seed;
+    }
+
+    @Override
+    protected int next(int bits) {
+        return (int) (nextLong() >>> (64 - bits));
+    }
+
+    @Override
+    public long nextLong() {
+        long z = state += GOLDEN_GAMMA;
+        z = (z ^ (z >>> 30)) * 0xbf58476d1ce4e5b9L;
+        z = (z ^ (z >>> 27)) * 0x94d049bb133111ebL;
+        return z ^ (z >>> 31);
+    }
+
+    /**
+     * @return - the current state of the generator (to be restored with setSeed).
+     */
+    long state() {
+        return state;
+    }
+}
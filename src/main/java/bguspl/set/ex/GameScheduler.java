@@ -0,0 +1,28 @@
+package bguspl.set.ex;
+
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+
+/**
+ * Holds the scheduler shared by all the game entities for short timed tasks (e.g. freeze countdowns).
+ * Tasks submitted to it must never block.
+ */
+final class GameScheduler {
+
+    private static ScheduledExecutorService shared;
+
+    private GameScheduler() {}
+
+    /**
+     * @return - the shared scheduler (created on first use, runs on a single daemon thread).
+     */
+    static synchronized ScheduledExecutorService shared() {
+        if (shared == null)
+            shared = Executors.newSingleThreadScheduledExecutor(r -> {
+                Thread thread = new Thread(r, "game-scheduler");
+                thread.setDaemon(true);
+                return thread;
+            });
+        return shared;
+    }
+}
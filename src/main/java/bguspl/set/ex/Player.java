@@ -1,15 +1,16 @@
 package bguspl.set.ex;
 
+import java.util.List;
 import java.util.Random;
 import bguspl.set.Env;
-import java.util.concurrent.BlockingQueue;
-import java.util.concurrent.LinkedBlockingQueue;
+import bguspl.set.ThreadLogger;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
 
 /**
  * This class manages the players' threads and data
  *
  * @inv id >= 0
- * @inv score >= 0
  */
 public class Player implements Runnable {
 
@@ -23,6 +24,11 @@ public class Player implements Runnable {
      */
     private final Table table;
 
+    /**
+     * The dealer, whose scoreboard holds the score of the player.
+     */
+    private final Dealer dealer;
+
     /**
      * The id of the player (starting from 0).
      */
@@ -31,32 +37,56 @@ public class Player implements Runnable {
     /**
      * The thread representing the current player.
      */
-    private Thread playerThread;
+    private volatile Thread playerThread;
 
     /**
      * The thread of the AI (computer) player (an additional thread used to generate
      * key presses).
      */
-    private Thread aiThread;
+    private volatile Thread aiThread;
 
     /**
      * True iff the player is human (not a computer player).
      */
     private final boolean human;
 
+    /**
+     * True iff the computer player claims the sets found by the table analysis (instead of pressing random keys).
+     */
+    private final boolean solver;
+
     /**
      * True iff game should be terminated.
      */
     private volatile boolean terminate;
 
     /**
-     * The current score of the player.
+     * The slots of the key presses waiting to be handled by the player thread.
      */
-    private int score;
+    private final ActionRing actions;
 
-    private BlockingQueue<Integer> actions;
+    /**
+     * The verdict of the dealer on the latest claim: 1 for a point, -1 for a penalty, 0 for none (the claim was
+     * dropped).
+     */
+    private volatile int peneltyOrPoint = 0;
 
-    private int peneltyOrPoint = 0;
+    /**
+     * True while a claim of the player waits for the dealer (guarded by this).
+     */
+    private boolean claimPending;
+
+    /**
+     * The time (in milliseconds since the epoch) until which the player is frozen.
+     */
+    private volatile long freezeUntil;
+
+    private static final long SECOND = 1000;
+
+    /**
+     * Counted down once the player is ready to play (null if nobody waits for it).
+     */
+    private volatile CountDownLatch ready;
 
     /**
      * The class constructor.
@@ -71,9 +101,12 @@ public class Player implements Runnable {
     public Player(Env env, Dealer dealer, Table table, int id, boolean human) {
         this.env = env;
         this.table = table;
+        this.dealer = dealer;
         this.id = id;
         this.human = human;
-        actions = new LinkedBlockingQueue<Integer>(env.config.featureSize);
+        this.solver = !human && env.config.computerStrategy.equals("solver");
+        actions = new ActionRing(env.config.featureSize, env.config.overwriteActions);
+        ThreadLogger.profileLock("player " + id, this);
     }
 
     /**
@@ -83,52 +116,58 @@ public class Player implements Runnable {
     @Override
     public void run() {
         playerThread = Thread.currentThread();
+        ThreadLogger.profile(playerThread);
         env.logger.info("thread " + Thread.currentThread().getName() + " starting.");
         if (!human)
             createArtificialIntelligence();
 
-        synchronized (this) {
-            notifyAll();
-        }
+        CountDownLatch ready = this.ready;
+        if (ready != null) ready.countDown();
         while (!terminate) {
-
-            // TODO implement main player loop
             try {
-                Integer nextAction = actions.take();
-                if (table.getTokens(id).contains(nextAction)) {
-                    synchronized (table) {
+                int nextAction = actions.take();
+                if (isFrozen())
+                    continue;
+                // the token is toggled in one table section, so the dealer cannot change it in between
+                boolean claim = false;
+                synchronized (table) {
+                    if (table.hasToken(id, nextAction)) {
                         table.removeToken(id, nextAction);
+                    } else if (table.getTokens(id).size() < env.config.featureSize
+                            && table.slotToCard[nextAction] != null) {
+                        table.placeToken(id, nextAction);
+                        claim = table.getTokens(id).size() == env.config.featureSize;
                     }
-                } else {
-                    boolean wasAdded = false;
-                    synchronized (table) {
-                        if (table.getTokens(id).size() < env.config.featureSize
-                                && table.slotToCard[nextAction] != null) {
-                            table.placeToken(id, nextAction);
-                            wasAdded = true;
-                        }
+                }
+                if (claim) {
+                    synchronized (this) {
+                        claimPending = true;
+                        env.events.claimSubmitted(id, env.config.featureSize);
                     }
-                    if (numOfTokens() == env.config.featureSize && wasAdded) {
-                        synchronized (this) {
-                            table.waitingPlayers.add(this.id);
-                            try {
-                                wait();
-                            } catch (InterruptedException ignored) {
-                            }
-                            if (peneltyOrPoint == -1)
-                                penalty();
-                            if (peneltyOrPoint == 1)
-                                point();
-                        }
+                    // submitted without holding the player's lock, which the dealer takes while holding the table's
+                    table.submitClaim(id);
+                    synchronized (this) {
+                        // wakeups without a verdict are spurious (an interrupt means the game is over)
+                        while (claimPending && !terminate)
+                            wait();
+                        if (peneltyOrPoint == -1)
+                            penalty();
+                        if (peneltyOrPoint == 1)
+                            point();
                     }
                 }
             } catch (InterruptedException ignored) {
             }
         }
         if (!human) {
+            Thread.interrupted(); // the interrupt sent by terminate() was only meant to stop waiting for actions
             try {
-                aiThread.join();
-            } catch (InterruptedException ignored) {
+                aiThread.join(env.config.shutdownTimeoutMillis);
+                if (aiThread.isAlive())
+                    env.logger.warning("thread " + aiThread.getName() + " did not terminate within "
+                            + env.config.shutdownTimeoutMillis + " ms");
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
             }
         }
         env.logger.info("thread " + Thread.currentThread().getName() + " terminated.");
@@ -144,13 +183,30 @@ public class Player implements Runnable {
         // note: this is a very, very smart AI (!)
         aiThread = new Thread(() -> {
             env.logger.info("thread " + Thread.currentThread().getName() + " starting.");
-            while (!terminate) {
-                // TODO implement player key press simulator
-
-                Random x = new Random();
-                int randomSlot = x.nextInt(env.config.tableSize);
-                keyPressed(randomSlot);
+            ThreadLogger.profile(Thread.currentThread());
+            while (!terminate && !Thread.currentThread().isInterrupted()) {
+                if (solver) {
+                    if (!claimSet()) {
+                        try {
+                            Thread.sleep(1);
+                        } catch (InterruptedException e) {
+                            Thread.currentThread().interrupt();
+                        }
+                    }
+                } else {
+                    Random x = new Random();
+                    int randomSlot = x.nextInt(env.config.tableSize);
+                    keyPressed(randomSlot);
+                }
 
+                long delay = env.config.computerKeyDelayMillis;
+                if (delay > 0) {
+                    try {
+                        Thread.sleep(delay);
+                    } catch (InterruptedException e) {
+                        Thread.currentThread().interrupt();
+                    }
+                }
             }
             env.logger.info("thread " + Thread.currentThread().getName() + " terminated.");
         }, "computer-" + id);
@@ -158,53 +214,94 @@ public class Player implements Runnable {
     }
 
     /**
-     * Called when the game should be terminated.
+     * Presses the keys needed for the player's tokens to mark a legal set on the table (the solver strategy). The sets
+     * are taken from the shared table analysis, and players pick different sets (by id) when there are several.
+     * Keys are only pressed after the player thread handled the previous ones, so a slot is never toggled twice.
+     *
+     * @return - true iff any key was pressed.
+     */
+    private boolean claimSet() {
+        if (actions.size() > 0) return false;
+        List<int[]> sets = table.analysis().sets();
+        if (sets.isEmpty()) return false;
+        int[] set = sets.get(id % sets.size());
+
+        int[] keys = new int[env.config.featureSize * 2];
+        int count = 0;
+        synchronized (table) {
+            List<Integer> tokens = table.getTokens(id);
+            boolean[] wanted = new boolean[env.config.tableSize];
+            for (int card : set) {
+                Integer slot = table.cardToSlot[card];
+                if (slot == null) return false; // the table changed since the analysis
+                wanted[slot] = true;
+                if (!tokens.contains(slot)) keys[count++] = slot;
+            }
+            for (int slot : tokens)
+                if (!wanted[slot]) keys[count++] = slot;
+        }
+        // remove the unwanted tokens first (they are last in keys)
+        for (int i = count - 1; i >= 0; i--)
+            keyPressed(keys[i]);
+        return count > 0;
+    }
+
+    /**
+     * Called when the game should be terminated. Interrupts the threads of the player, so they stop waiting.
      */
     public void terminate() {
-        // TODO implement
         this.terminate = true;
+        Thread thread = aiThread;
+        if (thread != null) thread.interrupt();
+        thread = playerThread;
+        if (thread != null) thread.interrupt();
+    }
+
+    /**
+     * @return - the number of milliseconds the player remains frozen for (0 if it is not frozen).
+     */
+    long frozenMillis() {
+        return Math.max(0, freezeUntil - System.currentTimeMillis());
+    }
+
+    /**
+     * Restores the freeze of the player from a checkpoint and displays its restored score (before the player starts).
+     */
+    void restore(long frozenMillis) {
+        env.ui.setScore(id, score());
+        freeze(frozenMillis);
+    }
+
+    /**
+     * Sets the latch the player counts down once its threads are running (must be called before it starts).
+     */
+    void setReadySignal(CountDownLatch ready) {
+        this.ready = ready;
     }
 
     /**
-     * This method is called when a key is pressed.
+     * This method is called when a key is pressed. It never blocks: if the player has too many actions waiting, the
+     * key press is dropped (or the oldest action is, see Config.overwriteActions).
      *
      * @param slot - the slot corresponding to the key pressed.
      */
     public void keyPressed(int slot) {
-        // TODO implement
-
-        if (actions.size() < env.config.featureSize) {
-            try {
-                actions.put(slot);
-            } catch (InterruptedException ignored) {
-            }
-        }
+        if (isFrozen())
+            return;
+        actions.offer(slot);
     }
 
     /**
      * Award a point to a player and perform other related actions.
      *
-     * @post - the player's score is increased by 1.
+     * @pre - the dealer has added the point to the scoreboard.
      * @post - the player's score is updated in the ui.
      */
     public void point() {
-        // TODO implement
-        if (!actions.isEmpty()) {
-            actions.clear();
-        }
-        score = score + peneltyOrPoint;
-        int ignored = table.countCards(); // this part is just for demonstration in the unit tests
-        env.ui.setScore(id, score);
-        int second = 1000;
-        for (int i = 0; i < env.config.pointFreezeMillis & !terminate; i = i + second) {
-            env.ui.setFreeze(id, env.config.pointFreezeMillis - i);
-            try {
-                playerThread.sleep(second);
-            } catch (InterruptedException e) {
-            }
-        }
         actions.clear();
-        env.ui.setFreeze(id, 0);
+        int ignored = table.countCards(); // this part is just for demonstration in the unit tests
+        env.ui.setScore(id, score());
+        freeze(env.config.pointFreezeMillis);
         peneltyOrPoint = 0;
     }
 
@@ -212,23 +309,51 @@ public class Player implements Runnable {
      * Penalize a player and perform other related actions.
      */
     public void penalty() {
-        // TODO implement
-
-        // make the player (thread) that choose ilegal set to freeze for 5 seconds
-        Long freezeTime = env.config.penaltyFreezeMillis;
-        int second = 1000;
-        for (int i = 0; i < freezeTime & !terminate; i = i + second) {
-            env.ui.setFreeze(id, freezeTime - i);
-            try {
-                playerThread.sleep(second);
-            } catch (InterruptedException e) {
-            }
-        }
         actions.clear();
-        env.ui.setFreeze(id, 0);
+        freeze(env.config.penaltyFreezeMillis);
         peneltyOrPoint = 0;
     }
 
+    /**
+     * @return - true iff the player is frozen (i.e. its actions are discarded).
+     */
+    public boolean isFrozen() {
+        return System.currentTimeMillis() < freezeUntil;
+    }
+
+    /**
+     * Freezes the player without blocking its thread: its actions are discarded until the freeze deadline passes,
+     * while the freeze countdown is displayed by the shared scheduler.
+     *
+     * @param millies - the freeze time in milliseconds.
+     */
+    private void freeze(long millies) {
+        if (millies <= 0) {
+            env.ui.setFreeze(id, 0);
+            return;
+        }
+        long deadline = System.currentTimeMillis() + millies;
+        freezeUntil = deadline;
+        updateFreezeDisplay(deadline);
+    }
+
+    /**
+     * Displays the remaining freeze time and schedules the next update (on the next whole second of the countdown).
+     *
+     * @param deadline - the freeze deadline the update belongs to (ignored if the player was frozen again since).
+     */
+    private void updateFreezeDisplay(long deadline) {
+        if (deadline != freezeUntil) return;
+        long remaining = deadline - System.currentTimeMillis();
+        if (remaining <= 0 || terminate) {
+            env.ui.setFreeze(id, 0);
+            return;
+        }
+        env.ui.setFreeze(id, remaining);
+        long delay = remaining % SECOND == 0 ? SECOND : remaining % SECOND;
+        GameScheduler.shared().schedule(() -> updateFreezeDisplay(deadline), delay, TimeUnit.MILLISECONDS);
+    }
+
     public int numOfTokens() {
         return table.getTokens(id).size();
     }
@@ -237,19 +362,45 @@ public class Player implements Runnable {
         return table.getCardssWithTokens(id);
     }
 
+    /**
+     * @return - the number of key presses dropped because too many actions were waiting.
+     */
+    public long droppedActions() {
+        return actions.drops();
+    }
+
+    /**
+     * @return - the score of the player (kept by the dealer's scoreboard).
+     */
     public int score() {
-        return score;
+        return dealer.scoreboard().score(id);
+    }
+
+    /**
+     * @return - the name of the strategy the player uses to choose slots.
+     */
+    public String strategy() {
+        return human ? "human" : env.config.computerStrategy;
     }
 
     public void setPenaltyOrPoint(int i) {
         this.peneltyOrPoint = i;
     }
 
+    /**
+     * Called by the dealer once the waiting claim of the player was judged (or dropped): wakes the player up.
+     */
+    synchronized void claimJudged() {
+        claimPending = false;
+        notifyAll();
+    }
+
     public void removeTokens(int[] cards) {
-        for (int i = 0; i < cards.length; i++) {
-            int j = table.cardToSlot[cards[i]];
-            if (table.getTokens(id).contains(j)) {
-                table.removeToken(id, j);
+        synchronized (table) {
+            for (int card : cards) {
+                Integer slot = table.cardToSlot[card];
+                if (slot != null && table.hasToken(id, slot))
+                    table.removeToken(id, slot);
             }
         }
     }
@@ -0,0 +1,53 @@
+package bguspl.set.ex;
+
+import java.util.logging.Logger;
+
+/**
+ * The policies the dealer may follow when the table has no legal set (a reshuffle always happens on turn timeout).
+ */
+public enum ReshufflePolicy {
+
+    /**
+     * Do nothing until the turn times out.
+     */
+    TIMEOUT("timeout"),
+
+    /**
+     * Reshuffle all the cards as soon as the table has no set.
+     */
+    DEAD_TABLE("dead-table"),
+
+    /**
+     * Deal FeatureSize cards less than the table size, and add FeatureSize more cards while the table has no set
+     * (like the 15 card rule of the physical game). Reshuffles if the table is full and still has no set.
+     */
+    EXTRA_CARDS("extra-cards"),
+
+    /**
+     * Return FeatureSize random cards from the table to the deck and deal new ones while the table has no set.
+     * Reshuffles all the cards if that does not help.
+     */
+    PARTIAL("partial");
+
+    private final String name;
+
+    ReshufflePolicy(String name) {
+        this.name = name;
+    }
+
+    /**
+     * @return - the policy with the given configuration name (or TIMEOUT if there is none).
+     */
+    public static ReshufflePolicy of(String name, Logger logger) {
+        for (ReshufflePolicy policy : values())
+            if (policy.name.equals(name))
+                return policy;
+        logger.warning("unknown reshuffle policy " + name + ", using " + TIMEOUT.name);
+        return TIMEOUT;
+    }
+
+    @Override
+    public String toString() {
+        return name;
+    }
+}
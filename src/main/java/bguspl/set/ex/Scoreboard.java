@@ -0,0 +1,97 @@
+package bguspl.set.ex;
+
+import java.util.Arrays;
+
+/**
+ * This class holds the scores of the players of a game and their leaderboard (the player ids ordered by descending
+ * score, ties broken by id). The leaderboard is kept sorted incrementally: a score change only moves its player past
+ * the players it overtook (or fell behind), so ranking dozens of players costs nothing per tick.
+ *
+ * @inv scores[order[i]] >= scores[order[i + 1]] for every rank i
+ * @inv order[rank[p]] == p for every player p
+ */
+public class Scoreboard {
+
+    private final int[] scores;
+
+    /**
+     * The player ids by rank.
+     */
+    private final int[] order;
+
+    /**
+     * The rank of each player.
+     */
+    private final int[] rank;
+
+    /**
+     * @param players - the number of players.
+     */
+    public Scoreboard(int players) {
+        scores = new int[players];
+        order = new int[players];
+        rank = new int[players];
+        for (int p = 0; p < players; p++)
+            order[p] = rank[p] = p;
+    }
+
+    /**
+     * Adds points to the score of a player (negative points are deducted).
+     *
+     * @return - the new score of the player.
+     */
+    public synchronized int add(int player, int points) {
+        scores[player] += points;
+        int r = rank[player];
+        while (r > 0 && before(player, order[r - 1]))
+            move(order[r - 1], r--);
+        while (r < order.length - 1 && before(order[r + 1], player))
+            move(order[r + 1], r++);
+        move(player, r);
+        return scores[player];
+    }
+
+    private boolean before(int a, int b) {
+        return scores[a] > scores[b] || scores[a] == scores[b] && a < b;
+    }
+
+    private void move(int player, int r) {
+        order[r] = player;
+        rank[player] = r;
+    }
+
+    public synchronized int score(int player) {
+        return scores[player];
+    }
+
+    /**
+     * @return - a copy of the scores of all the players (indexed by player id).
+     */
+    public synchronized int[] scores() {
+        return scores.clone();
+    }
+
+    /**
+     * @return - a copy of the leaderboard (the player ids ordered by descending score).
+     */
+    public synchronized int[] leaderboard() {
+        return order.clone();
+    }
+
+    /**
+     * @return - the 0 based rank of a player (players with equal scores are ranked by id).
+     */
+    public synchronized int rank(int player) {
+        return rank[player];
+    }
+
+    /**
+     * @return - the ids of all the players sharing the top score, in ascending order.
+     */
+    public synchronized int[] leaders() {
+        int count = 0;
+        while (count < order.length && scores[order[count]] == scores[order[0]])
+            count++;
+        return Arrays.copyOf(order, count);
+    }
+}
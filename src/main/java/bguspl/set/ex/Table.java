@@ -5,8 +5,8 @@ import bguspl.set.Env;
 import java.util.ArrayList;
 import java.util.LinkedList;
 import java.util.Arrays;
+import java.util.BitSet;
 import java.util.List;
-import java.util.Objects;
 import java.util.concurrent.BlockingQueue;
 import java.util.concurrent.LinkedBlockingQueue;
 import java.util.stream.Collectors;
@@ -38,8 +38,31 @@ public class Table {
      */
     protected final ArrayList<LinkedList<Integer>> PleyersTokens;
 
+    /**
+     * The slots that have a card (mirrors slotToCard), and the slots with a token of each player (mirrors
+     * PleyersTokens), so large tables are scanned a word of slots at a time. Written by putCard, takeCard and the
+     * token methods only, and guarded by the table lock like the tokens (BitSet is not thread safe).
+     */
+    private final BitSet occupied;
+    private final BitSet[] tokens;
+
     protected BlockingQueue<Integer> waitingPlayers;
 
+    /**
+     * Called whenever a player submits a claim (null if none), e.g. to wake up a dealer run by a DealerPool.
+     */
+    private volatile Runnable claimListener;
+
+    /**
+     * The number of card placements and removals so far (written while holding the table lock).
+     */
+    private volatile long version;
+
+    /**
+     * The legal sets on the table, analysed once per version.
+     */
+    private final TableAnalysis analysis;
+
     /**
      * Constructor for testing.
      *
@@ -57,6 +80,13 @@ public class Table {
             PleyersTokens.add(new LinkedList<>());
         }
         waitingPlayers = new LinkedBlockingQueue<>(env.config.players);
+        occupied = new BitSet(slotToCard.length);
+        for (int slot = 0; slot < slotToCard.length; slot++)
+            if (slotToCard[slot] != null) occupied.set(slot);
+        tokens = new BitSet[env.config.players];
+        for (int i = 0; i < tokens.length; i++)
+            tokens[i] = new BitSet(slotToCard.length);
+        analysis = new TableAnalysis(env, this);
     }
 
     /**
@@ -73,8 +103,7 @@ public class Table {
      * This method prints all possible legal sets of cards that are currently on the table.
      */
     public void hints() {
-        List<Integer> deck = Arrays.stream(slotToCard).filter(Objects::nonNull).collect(Collectors.toList());
-        env.util.findSets(deck, Integer.MAX_VALUE).forEach(set -> {
+        analysis.sets().forEach(set -> {
             StringBuilder sb = new StringBuilder().append("Hint: Set found: ");
             List<Integer> slots = Arrays.stream(set).mapToObj(card -> cardToSlot[card]).sorted().collect(Collectors.toList());
             int[][] features = env.util.cardsToFeatures(set);
@@ -82,17 +111,36 @@ public class Table {
         });
     }
 
+    /**
+     * Checks whether the cards on the table contain a legal set (checked once per table version).
+     *
+     * @return - true iff there is at least one legal set on the table.
+     */
+    public boolean hasSet() {
+        return analysis.hasSet();
+    }
+
+    /**
+     * @return - the analysis of the legal sets on the table (shared by all its users).
+     */
+    TableAnalysis analysis() {
+        return analysis;
+    }
+
+    /**
+     * @return - the version of the table (changes whenever a card is placed or removed).
+     */
+    public long version() {
+        return version;
+    }
+
     /**
      * Count the number of cards currently on the table.
      *
      * @return - the number of cards on the table.
      */
     public int countCards() {
-        int cards = 0;
-        for (Integer card : slotToCard)
-            if (card != null)
-                ++cards;
-        return cards;
+        return occupied.cardinality();
     }
 
     /**
@@ -103,15 +151,21 @@ public class Table {
      * @post - the card placed is on the table, in the assigned slot.
      */
     public void placeCard(int card, int slot) {
-        try {
-            Thread.sleep(env.config.tableDelayMillis);
-        } catch (InterruptedException ignored) {}
-
-        cardToSlot[card] = slot;
-        slotToCard[slot] = card;
+        delay();
+        putCard(card, slot);
+    }
 
-        // TODO implement
-        env.ui.placeCard(card, slot);
+    /**
+     * Places several cards on the table at once (with a single table delay).
+     * @param cards - the card ids to place.
+     * @param slots - the slots in which the cards should be placed (respectively).
+     * @param count - the number of cards to place.
+     */
+    public void placeCards(int[] cards, int[] slots, int count) {
+        if (count == 0) return;
+        delay();
+        for (int i = 0; i < count; i++)
+            putCard(cards[i], slots[i]);
     }
 
     /**
@@ -119,28 +173,54 @@ public class Table {
      * @param slot - the slot from which to remove the card.
      */
     public void removeCard(int slot) {
+        delay();
+        takeCard(slot);
+    }
+
+    /**
+     * Removes several cards from the table at once (with a single table delay).
+     * @param slots - the slots from which to remove the cards.
+     * @param count - the number of cards to remove.
+     */
+    public void removeCards(int[] slots, int count) {
+        if (count == 0) return;
+        delay();
+        for (int i = 0; i < count; i++)
+            takeCard(slots[i]);
+    }
+
+    private void delay() {
         try {
             Thread.sleep(env.config.tableDelayMillis);
         } catch (InterruptedException ignored) {}
+    }
+
+    private void putCard(int card, int slot) {
+        cardToSlot[card] = slot;
+        slotToCard[slot] = card;
+        occupied.set(slot);
+        version++;
+        env.ui.placeCard(card, slot);
+        env.events.cardPlaced(card, slot);
+    }
 
-        // TODO implement
-        
-        cardToSlot[slotToCard[slot]] = null;
+    private void takeCard(int slot) {
+        int card = slotToCard[slot];
+        cardToSlot[card] = null;
         slotToCard[slot] = null;
-      
-        for(LinkedList<Integer> player: PleyersTokens){
-            if(player.contains(slot)){
-                int index = player.indexOf(slot);
-                if(index >= 0 && player.size()==1){
-                    player.remove(0);
-                }
-                else{
-                    player.remove(index);
-                }
+        occupied.clear(slot);
+        version++;
+
+        for (int player = 0; player < tokens.length; player++) {
+            if (tokens[player].get(slot)) {
+                tokens[player].clear(slot);
+                PleyersTokens.get(player).remove(Integer.valueOf(slot));
+                env.events.tokenToggled(player, slot, false);
             }
         }
         env.ui.removeTokens(slot);
         env.ui.removeCard(slot);
+        env.events.cardRemoved(card, slot);
     }
 
     /**
@@ -149,14 +229,11 @@ public class Table {
      * @param slot   - the slot on which to place the token.
      */
     public void placeToken(int player, int slot) {
-        // TODO implement
         if(slotToCard[slot] != null){
             PleyersTokens.get(player).add(slot);
+            tokens[player].set(slot);
             env.ui.placeToken(player, slot);
-            if (PleyersTokens.get(player).size() == 3) {
-                this.notifyAll();   
-                // to wake up the dealer           
-            }
+            env.events.tokenToggled(player, slot, true);
         }
     }
 
@@ -167,11 +244,12 @@ public class Table {
      * @return       - true iff a token was successfully removed.
      */
     public boolean removeToken(int player, int slot) {
-        // TODO implement
         if (PleyersTokens.get(player).contains(slot)) {
             int index = PleyersTokens.get(player).indexOf(slot);
             PleyersTokens.get(player).remove(index);
+            tokens[player].clear(slot);
             env.ui.removeToken(player,slot);
+            env.events.tokenToggled(player, slot, false);
             return true;
         }
         return false;
@@ -186,17 +264,49 @@ public class Table {
         }
 
 
+    /**
+     * Adds a player to the queue of players waiting for the dealer to check their claim, and wakes up the dealer.
+     * Must not be called while holding the table lock.
+     *
+     * @param player - the id of the player.
+     */
+    public void submitClaim(int player) {
+        synchronized (this) {
+            waitingPlayers.add(player);
+            notifyAll();
+        }
+        Runnable listener = claimListener;
+        if (listener != null) listener.run();
+    }
+
+    public void setClaimListener(Runnable listener) {
+        this.claimListener = listener;
+    }
+
+    /**
+     * Must be called while holding the table lock (together with the action that depends on the answer).
+     *
+     * @return - true iff the player has a token on the slot.
+     */
+    public boolean hasToken(int player, int slot) {
+        return tokens[player].get(slot);
+    }
+
+    /**
+     * @return - the first slot from the given one on that has no card (tableSize or above if there is none).
+     */
+    public int nextFreeSlot(int from) {
+        return occupied.nextClearBit(from);
+    }
+
+    /**
+     * @return - the first slot from the given one on that has a card (-1 if there is none).
+     */
+    public int nextOccupiedSlot(int from) {
+        return occupied.nextSetBit(from);
+    }
+
     public LinkedList<Integer> getTokens(int player) {
         return PleyersTokens.get(player);
     }
-    
-    public boolean hasSet(){
-        List<Integer> cards = new ArrayList<>();
-        for(int i=0; i < slotToCard.length; i++){
-            if(slotToCard[i]!=null){
-                cards.add(slotToCard[i]);
-            }
-        }
-        return(env.util.findSets(cards,1).size()>0);
-    }
 }
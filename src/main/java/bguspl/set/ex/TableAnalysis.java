@@ -0,0 +1,136 @@
+package bguspl.set.ex;
+
+import bguspl.set.Env;
+import bguspl.set.UtilImpl;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Objects;
+import java.util.stream.Collectors;
+
+/**
+ * This class analyses the cards on a table once per table version (the version changes whenever a card is placed or
+ * removed), so any number of players (and the dealer) can query the legal sets on the table without searching again.
+ */
+class TableAnalysis {
+
+    private final Env env;
+
+    private final Table table;
+
+    /**
+     * The result of the latest analysis (replaced as a whole, so readers never see a partial one).
+     */
+    private volatile Result latest;
+
+    /**
+     * The version the table had when it was last checked for a set, and the outcome of that check.
+     */
+    private long checkedVersion = -1;
+    private boolean checkedHasSet;
+
+    private static final class Result {
+        final long version;
+        final List<int[]> sets;
+
+        Result(long version, List<int[]> sets) {
+            this.version = version;
+            this.sets = sets;
+        }
+    }
+
+    TableAnalysis(Env env, Table table) {
+        this.env = env;
+        this.table = table;
+    }
+
+    /**
+     * @return - all the legal sets (as sorted card ids) on the table in its current version (must not be modified).
+     */
+    List<int[]> sets() {
+        Result result = latest;
+        if (result != null && result.version == table.version())
+            return result.sets;
+        synchronized (table) {
+            result = latest;
+            long version = table.version();
+            if (result == null || result.version != version) {
+                result = new Result(version, Collections.unmodifiableList(findSets()));
+                latest = result;
+            }
+            return result.sets;
+        }
+    }
+
+    /**
+     * @return - true iff there is at least one legal set on the table in its current version.
+     */
+    boolean hasSet() {
+        Result result = latest;
+        if (result != null && result.version == table.version())
+            return !result.sets.isEmpty();
+        synchronized (table) {
+            long version = table.version();
+            if (checkedVersion != version) {
+                checkedHasSet = scanForSet();
+                checkedVersion = version;
+            }
+            return checkedHasSet;
+        }
+    }
+
+    /**
+     * Finds all the sets on the table. With 3 card sets the completion of every pair of cards is looked up (each set
+     * is found once, from its two lowest slots), otherwise the sets are searched for.
+     */
+    private List<int[]> findSets() {
+        Integer[] slotToCard = table.slotToCard;
+        Integer[] cardToSlot = table.cardToSlot;
+        UtilImpl util = completionUtil();
+        if (util == null) {
+            List<Integer> cards = Arrays.stream(slotToCard).filter(Objects::nonNull).collect(Collectors.toList());
+            return new ArrayList<>(env.util.findSets(cards, Integer.MAX_VALUE));
+        }
+
+        List<int[]> sets = new ArrayList<>();
+        for (int i = table.nextOccupiedSlot(0); i >= 0; i = table.nextOccupiedSlot(i + 1)) {
+            for (int j = table.nextOccupiedSlot(i + 1); j >= 0; j = table.nextOccupiedSlot(j + 1)) {
+                Integer k = cardToSlot[util.completeSet(slotToCard[i], slotToCard[j])];
+                if (k != null && k > j) {
+                    int[] set = {slotToCard[i], slotToCard[j], slotToCard[k]};
+                    Arrays.sort(set);
+                    sets.add(set);
+                }
+            }
+        }
+        return sets;
+    }
+
+    /**
+     * Checks whether there is a set on the table, stopping at the first one found.
+     */
+    private boolean scanForSet() {
+        Integer[] slotToCard = table.slotToCard;
+        Integer[] cardToSlot = table.cardToSlot;
+        UtilImpl util = completionUtil();
+        if (util == null)
+            return !findSets().isEmpty();
+
+        for (int i = table.nextOccupiedSlot(0); i >= 0; i = table.nextOccupiedSlot(i + 1))
+            for (int j = table.nextOccupiedSlot(i + 1); j >= 0; j = table.nextOccupiedSlot(j + 1))
+                if (cardToSlot[util.completeSet(slotToCard[i], slotToCard[j])] != null)
+                    return true;
+        return false;
+    }
+
+    /**
+     * @return - the utility object if it has a set completion table (null otherwise).
+     */
+    private UtilImpl completionUtil() {
+        if (env.util instanceof UtilImpl && ((UtilImpl) env.util).hasCompletionTable())
+            return (UtilImpl) env.util;
+        return null;
+    }
+}
@@ -0,0 +1,80 @@
+package bguspl.set;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Properties;
+import java.util.logging.Handler;
+import java.util.logging.Level;
+import java.util.logging.LogRecord;
+import java.util.logging.Logger;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotEquals;
+
+class ConfigTest {
+
+    private final Logger logger = Logger.getAnonymousLogger();
+
+    private Config config(String... properties) {
+        Properties p = new Properties();
+        for (int i = 0; i < properties.length; i += 2)
+            p.setProperty(properties[i], properties[i + 1]);
+        return new Config(logger, p);
+    }
+
+    @Test
+    void hashIgnoresRuntimeOnlyProperties() {
+        long hash = config().hash();
+        assertEquals(hash, config("Seed", "12", "TurnTimeoutSeconds", "5", "LogLevel", "OFF", "NetworkPort", "7777",
+                "ProfilerSampleMillis", "10", "ResultsFile", "r.bin", "CheckpointFile", "c.bin").hash());
+        // explicit default values hash like missing ones
+        assertEquals(hash, config("Rows", "3", "ComputerStrategy", " Random ").hash());
+    }
+
+    @Test
+    void hashDependsOnTheRulesOfTheGame() {
+        long hash = config().hash();
+        assertNotEquals(hash, config("Rows", "4").hash());
+        assertNotEquals(hash, config("FeatureSize", "4").hash());
+        assertNotEquals(hash, config("ComputerPlayers", "3").hash());
+        assertNotEquals(hash, config("ComputerStrategy", "solver").hash());
+        assertNotEquals(hash, config("ReshufflePolicy", "dead-table").hash());
+    }
+
+    @Test
+    void overridesDoNotSetUpTheLoggerAgain() {
+        Logger logger = Logger.getAnonymousLogger();
+        List<LogRecord> records = new ArrayList<>();
+        Handler handler = new Handler() {
+            @Override
+            public void publish(LogRecord record) {
+                records.add(record);
+            }
+
+            @Override
+            public void flush() {}
+
+            @Override
+            public void close() {}
+        };
+        logger.addHandler(handler);
+        Properties properties = new Properties();
+        properties.setProperty("PlayerKeys1", "1,2,3"); // mismatches the table size
+        Config config = new Config(logger, properties);
+        assertEquals(1, records.size());
+        logger.setLevel(Level.WARNING);
+
+        Properties overrides = new Properties();
+        overrides.setProperty("PointFreezeSeconds", "2");
+        assertEquals(2000, config.withOverrides(logger, overrides).pointFreezeMillis);
+        assertEquals(1, records.size());
+        assertEquals(Level.WARNING, logger.getLevel());
+
+        overrides.setProperty("LogLevel", "INFO");
+        config.withOverrides(logger, overrides);
+        assertEquals(Level.INFO, logger.getLevel());
+        assertEquals(1, records.size());
+    }
+}
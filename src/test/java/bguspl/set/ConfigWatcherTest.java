@@ -0,0 +1,95 @@
+package bguspl.set;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.logging.Logger;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class ConfigWatcherTest {
+
+    @TempDir
+    Path dir;
+
+    private final Logger logger = Logger.getAnonymousLogger();
+    private Path file;
+    private Env env;
+    private ConfigWatcher watcher;
+
+    @BeforeEach
+    void setUp() throws IOException {
+        file = dir.resolve("config.properties");
+        Files.write(file, Arrays.asList("TurnTimeoutSeconds=60", "Rows=3"));
+        Config config = new Config(logger, file.toString());
+        env = new Env(logger, config, new UserInterfaceHeadless(config), new UtilImpl(config));
+        watcher = new ConfigWatcher(logger, file);
+        watcher.watch(env);
+    }
+
+    @AfterEach
+    void tearDown() {
+        watcher.close();
+    }
+
+    @Test
+    void appliesOnlyTheReloadableProperties() throws IOException {
+        Files.write(file, Arrays.asList("TurnTimeoutSeconds=7", "PointFreezeSeconds=2", "Rows=5", "FeatureSize=4",
+                "ComputerPlayers=5", "ResultsFile=results.bin"));
+        watcher.reload();
+
+        Config config = env.config;
+        assertEquals(7000, config.turnTimeoutMillis);
+        assertEquals(2000, config.pointFreezeMillis);
+        assertEquals(3, config.rows);
+        assertEquals(3, config.featureSize);
+        assertEquals(2, config.computerPlayers);
+        assertEquals("", config.resultsFile);
+    }
+
+    @Test
+    void unreadableFileKeepsTheConfiguration() throws IOException {
+        Config before = env.config;
+        Files.delete(file);
+        watcher.reload();
+        assertSame(before, env.config);
+
+        Files.write(file, Arrays.asList("TurnTimeoutSeconds=\\u00zz")); // a malformed escape
+        watcher.reload();
+        assertSame(before, env.config);
+
+        Files.write(file, Arrays.asList("TurnTimeoutSeconds=9"));
+        watcher.reload();
+        assertEquals(9000, env.config.turnTimeoutMillis);
+    }
+
+    @Test
+    void watcherKeepsWatchingAfterAFailedReload() throws IOException, InterruptedException {
+        watcher.start();
+        Files.delete(file);
+        Files.write(file, Arrays.asList("TurnTimeoutSeconds=\\u00zz"));
+        Thread.sleep(100);
+        Files.write(file, Arrays.asList("TurnTimeoutSeconds=8"));
+        long deadline = System.currentTimeMillis() + 10000;
+        while (env.config.turnTimeoutMillis != 8000) {
+            assertTrue(System.currentTimeMillis() < deadline, "the valid edit was not applied");
+            Thread.sleep(10);
+        }
+    }
+
+    @Test
+    void invalidReloadableValueKeepsTheConfiguration() throws IOException {
+        Config before = env.config;
+        Files.write(file, Arrays.asList("TurnTimeoutSeconds=soon"));
+        watcher.reload();
+        assertSame(before, env.config);
+    }
+}
@@ -0,0 +1,91 @@
+package bguspl.set;
+
+import bguspl.set.ex.Dealer;
+import bguspl.set.ex.Player;
+import bguspl.set.ex.Scoreboard;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+
+import java.util.Properties;
+import java.util.logging.Logger;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotSame;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.mockito.Mockito.when;
+
+@ExtendWith(MockitoExtension.class)
+class GameControlTest {
+
+    @Mock
+    private Dealer dealer;
+    @Mock
+    private Player player0;
+    @Mock
+    private Player player1;
+    @Mock
+    private Logger logger;
+
+    private Env env;
+    private GameControl control;
+
+    @BeforeEach
+    void setUp() {
+        Properties properties = new Properties();
+        properties.setProperty("PointFreezeSeconds", "1");
+        properties.setProperty("Rows", "3");
+        Config config = new Config(logger, properties);
+        env = new Env(logger, config, new UserInterfaceHeadless(config), new UtilImpl(config));
+        control = new GameControl(env, dealer, new Player[]{player0, player1});
+    }
+
+    @Test
+    void setterPublishesANewConfiguration() {
+        Config before = env.config;
+        control.setPointFreezeMillis(2500);
+
+        assertNotSame(before, env.config);
+        assertEquals(2500, env.config.pointFreezeMillis);
+        assertEquals(2500, control.getPointFreezeMillis());
+        // the published configuration is never modified, and the rest of it is kept
+        assertEquals(1000, before.pointFreezeMillis);
+        assertEquals(before.seed, env.config.seed);
+        assertEquals(before.rows, env.config.rows);
+    }
+
+    @Test
+    void invalidChangesAreRejected() {
+        Config before = env.config;
+        Properties rows = new Properties();
+        rows.setProperty("Rows", "4");
+        assertThrows(IllegalArgumentException.class, () -> env.config.withOverrides(logger, rows));
+        assertThrows(IllegalArgumentException.class, () -> control.setTableDelayMillis(-1));
+        assertThrows(IllegalArgumentException.class, () -> control.setRandomSpinMax(-1));
+        assertSame(before, env.config);
+    }
+
+    @Test
+    void statisticsReflectTheGame() {
+        Scoreboard scoreboard = new Scoreboard(2);
+        scoreboard.add(1, 3);
+        when(dealer.scoreboard()).thenReturn(scoreboard);
+        when(dealer.deckRemaining()).thenReturn(57);
+        when(dealer.setsCollected()).thenReturn(3);
+        when(dealer.invalidClaims()).thenReturn(2);
+        when(player0.droppedActions()).thenReturn(4L);
+        when(player1.droppedActions()).thenReturn(0L);
+
+        assertEquals(2, control.getPlayers());
+        assertArrayEquals(new int[]{0, 3}, control.getScores());
+        assertArrayEquals(new int[]{1, 0}, control.getLeaderboard());
+        assertEquals(57, control.getDeckRemaining());
+        assertEquals(3, control.getSetsCollected());
+        assertEquals(2, control.getInvalidClaims());
+        assertArrayEquals(new long[]{4, 0}, control.getDroppedActions());
+    }
+}
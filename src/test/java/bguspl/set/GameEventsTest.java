@@ -0,0 +1,137 @@
+package bguspl.set;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.logging.Logger;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class GameEventsTest {
+
+    /**
+     * Records the events it receives, requesting initial events up front.
+     */
+    private static class Recorder implements GameEvents.Subscriber {
+        final List<GameEvent> events = new CopyOnWriteArrayList<>();
+        final CountDownLatch completed = new CountDownLatch(1);
+        final long initial;
+        volatile CountDownLatch received;
+        GameEvents.Subscription subscription;
+
+        Recorder(long initial, int expected) {
+            this.initial = initial;
+            this.received = new CountDownLatch(expected);
+        }
+
+        @Override
+        public void onSubscribe(GameEvents.Subscription subscription) {
+            this.subscription = subscription;
+            if (initial > 0) subscription.request(initial);
+        }
+
+        @Override
+        public void onNext(GameEvent event) {
+            events.add(event);
+            received.countDown();
+        }
+
+        @Override
+        public void onComplete() {
+            completed.countDown();
+        }
+    }
+
+    @Test
+    void deliversOnlyRequestedEventsInOrder() throws InterruptedException {
+        GameEvents stream = new GameEvents(Logger.getAnonymousLogger(), 16);
+        Recorder recorder = new Recorder(2, 2);
+        stream.subscribe(recorder);
+        for (int slot = 0; slot < 5; slot++)
+            stream.cardPlaced(slot + 10, slot);
+
+        assertTrue(recorder.received.await(5, TimeUnit.SECONDS));
+        Thread.sleep(50);
+        assertEquals(2, recorder.events.size());
+
+        recorder.received = new CountDownLatch(3);
+        recorder.subscription.request(10);
+        assertTrue(recorder.received.await(5, TimeUnit.SECONDS));
+        assertEquals(5, recorder.events.size());
+        for (int slot = 0; slot < 5; slot++) {
+            GameEvent event = recorder.events.get(slot);
+            assertEquals(GameEvent.Type.CARD_PLACED, event.type);
+            assertEquals(slot, event.slot);
+            assertEquals(slot + 10, event.card);
+        }
+    }
+
+    @Test
+    void slowSubscriberDropsEventsWithoutBlockingThePublisher() throws InterruptedException {
+        GameEvents stream = new GameEvents(Logger.getAnonymousLogger(), 8);
+        CountDownLatch release = new CountDownLatch(1);
+        Recorder slow = new Recorder(Long.MAX_VALUE, 1) {
+            @Override
+            public void onNext(GameEvent event) {
+                super.onNext(event);
+                try {
+                    release.await();
+                } catch (InterruptedException ignored) {
+                }
+            }
+        };
+        Recorder fast = new Recorder(Long.MAX_VALUE, 100);
+        stream.subscribe(slow);
+        stream.subscribe(fast);
+
+        stream.tokenToggled(0, 0, true);
+        assertTrue(slow.received.await(5, TimeUnit.SECONDS));
+        for (int i = 1; i < 100; i++) {
+            stream.tokenToggled(0, i, true);
+            // the fast subscriber keeps up (its buffer never fills)
+            if (i % 4 == 0) assertTrue(waitFor(fast, i + 1));
+        }
+        assertTrue(fast.received.await(5, TimeUnit.SECONDS));
+        assertEquals(0, fast.subscription.dropped());
+        // one event is being delivered and 8 are buffered
+        assertEquals(100 - 1 - 8, slow.subscription.dropped());
+
+        release.countDown();
+        stream.close();
+        assertTrue(slow.completed.await(5, TimeUnit.SECONDS));
+        assertTrue(fast.completed.await(5, TimeUnit.SECONDS));
+        assertEquals(9, slow.events.size());
+    }
+
+    @Test
+    void closeCompletesAfterTheBufferedEvents() throws InterruptedException {
+        GameEvents stream = new GameEvents(Logger.getAnonymousLogger(), 16);
+        Recorder recorder = new Recorder(0, 3);
+        stream.subscribe(recorder);
+        stream.verdict(1, true);
+        stream.scoreChanged(1, 1);
+        stream.reshuffle(12);
+        stream.close();
+        assertEquals(1, recorder.completed.getCount());
+
+        recorder.subscription.request(3);
+        assertTrue(recorder.completed.await(5, TimeUnit.SECONDS));
+        assertEquals(3, recorder.events.size());
+        assertEquals(GameEvent.Type.RESHUFFLE, recorder.events.get(2).type);
+        assertFalse(stream.hasSubscribers());
+    }
+
+    private static boolean waitFor(Recorder recorder, int events) throws InterruptedException {
+        long deadline = System.currentTimeMillis() + 5000;
+        while (recorder.events.size() < events) {
+            if (System.currentTimeMillis() > deadline) return false;
+            Thread.sleep(1);
+        }
+        return true;
+    }
+}
@@ -0,0 +1,199 @@
+package bguspl.set;
+
+import bguspl.set.ex.Player;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+
+import java.io.IOException;
+import java.net.InetSocketAddress;
+import java.nio.ByteBuffer;
+import java.nio.channels.SocketChannel;
+import java.util.Properties;
+import java.util.logging.Logger;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.timeout;
+import static org.mockito.Mockito.verify;
+
+@ExtendWith(MockitoExtension.class)
+class NetworkServerTest {
+
+    NetworkServer server;
+    @Mock
+    private Player player0;
+    @Mock
+    private Player player1;
+    private final Player[] players = new Player[8];
+    @Mock
+    private UserInterface ui;
+    @Mock
+    private Logger logger;
+
+    @BeforeEach
+    void setUp() throws IOException {
+        Properties properties = new Properties();
+        properties.put("NetworkPort", "0");
+        properties.put("UserInterface", "headless");
+        properties.put("HumanPlayers", "6");
+        properties.put("ComputerPlayers", "2");
+        Config config = new Config(logger, properties);
+        SpectatorFeed feed = new SpectatorFeed(config, ui);
+        players[0] = player0;
+        players[1] = player1;
+        for (int i = 2; i < players.length; i++)
+            players[i] = mock(Player.class);
+        server = new NetworkServer(logger, config, players, feed, feed);
+        server.start();
+    }
+
+    @AfterEach
+    void tearDown() {
+        server.close();
+    }
+
+    /**
+     * The local client harness: connects to the server and joins as the given player.
+     */
+    private SocketChannel connect(int player) throws IOException {
+        SocketChannel client = SocketChannel.open(new InetSocketAddress("localhost", server.localPort()));
+        ByteBuffer join = ByteBuffer.allocate(5).put(NetworkProtocol.JOIN).putInt(player);
+        join.flip();
+        client.write(join);
+        return client;
+    }
+
+    private void pressKey(SocketChannel client, int slot) throws IOException {
+        ByteBuffer key = ByteBuffer.allocate(5).put(NetworkProtocol.KEY).putInt(slot);
+        key.flip();
+        while (key.hasRemaining()) client.write(key);
+    }
+
+    private ByteBuffer read(SocketChannel client, int length) throws IOException {
+        ByteBuffer buffer = ByteBuffer.allocate(length);
+        while (buffer.hasRemaining())
+            if (client.read(buffer) < 0) throw new IOException("end of stream");
+        buffer.flip();
+        return buffer;
+    }
+
+    private void awaitConnections(int count) throws InterruptedException {
+        for (int i = 0; i < 100 && server.connections() != count; i++)
+            Thread.sleep(10);
+        assertEquals(count, server.connections());
+    }
+
+    @Test
+    void keyPressed_DispatchedToJoinedPlayer() throws IOException {
+        try (SocketChannel client = connect(1)) {
+            pressKey(client, 5);
+            verify(player1, timeout(1000)).keyPressed(5);
+        }
+    }
+
+    @Test
+    void placeCard_BroadcastToAllConnections() throws IOException, InterruptedException {
+        try (SocketChannel first = connect(0); SocketChannel second = connect(1)) {
+            awaitConnections(2);
+            server.placeCard(42, 11);
+            verify(ui).placeCard(42, 11);
+            for (SocketChannel client : new SocketChannel[]{first, second}) {
+                ByteBuffer message = read(client, 9);
+                assertEquals(NetworkProtocol.PLACE_CARD, message.get());
+                assertEquals(11, message.getInt());
+                assertEquals(42, message.getInt());
+            }
+        }
+    }
+
+    @Test
+    void announceWinner_AllPlayersSent() throws IOException, InterruptedException {
+        try (SocketChannel client = connect(0)) {
+            awaitConnections(1);
+            int[] winners = {0, 1, 2, 3, 4, 5, 6, 7};
+            server.announceWinner(winners);
+            ByteBuffer message = read(client, 1 + 4 * (1 + winners.length));
+            assertEquals(NetworkProtocol.WINNER, message.get());
+            assertEquals(winners.length, message.getInt());
+            for (int winner : winners)
+                assertEquals(winner, message.getInt());
+        }
+    }
+
+    @Test
+    void keyPressed_ManyMessagesFromManyConnections() throws IOException {
+        int messages = 1200; // a multiple of the table size
+        SocketChannel[] clients = new SocketChannel[6];
+        try {
+            for (int i = 0; i < clients.length; i++) clients[i] = connect(i);
+            for (int m = 0; m < messages; m++)
+                for (SocketChannel client : clients) pressKey(client, m % 12);
+            int pressesPerSlot = messages / 12;
+            for (int i = 0; i < clients.length; i++) {
+                verify(players[i], timeout(5000).times(pressesPerSlot)).keyPressed(0);
+                verify(players[i], timeout(5000).times(pressesPerSlot)).keyPressed(11);
+            }
+        } finally {
+            for (SocketChannel client : clients) if (client != null) client.close();
+        }
+    }
+
+    @Test
+    void join_RefusedForTakenAndComputerPlayers() throws IOException, InterruptedException {
+        try (SocketChannel first = connect(0)) {
+            pressKey(first, 1);
+            verify(player0, timeout(1000)).keyPressed(1);
+            try (SocketChannel second = connect(0); SocketChannel computer = connect(6)) {
+                awaitConnections(3);
+                pressKey(second, 3);
+                pressKey(computer, 4);
+                pressKey(first, 5);
+                verify(player0, timeout(1000)).keyPressed(5);
+                verify(player0, never()).keyPressed(3);
+                verify(players[6], never()).keyPressed(4);
+            }
+        }
+        // the player can be joined again once its connection is closed
+        awaitConnections(0);
+        try (SocketChannel again = connect(0)) {
+            pressKey(again, 2);
+            verify(player0, timeout(1000)).keyPressed(2);
+        }
+    }
+
+    @Test
+    void spectate_SnapshotThenDeltas() throws IOException {
+        server.placeCard(42, 7);
+        server.placeToken(1, 7);
+        try (SocketChannel client = SocketChannel.open(new InetSocketAddress("localhost", server.localPort()))) {
+            ByteBuffer spectate = ByteBuffer.allocate(1).put(NetworkProtocol.SPECTATE);
+            spectate.flip();
+            client.write(spectate);
+
+            ByteBuffer snapshot = read(client, read(client, 4).getInt());
+            assertEquals(2, snapshot.getLong());
+            assertEquals(SpectatorFeed.SNAPSHOT, snapshot.get());
+            int slots = snapshot.getInt();
+            for (int slot = 0; slot < slots; slot++)
+                assertEquals(slot == 7 ? 42 : -1, snapshot.getInt());
+            int players = snapshot.getInt();
+            for (int player = 0; player < players; player++)
+                assertEquals(0, snapshot.getInt());
+            assertEquals(1, snapshot.getInt());
+            assertEquals(7, snapshot.getInt());
+            assertEquals(1, snapshot.getInt());
+
+            server.setScore(1, 3);
+            ByteBuffer delta = read(client, read(client, 4).getInt());
+            assertEquals(3, delta.getLong());
+            assertEquals(SpectatorFeed.SCORE, delta.get());
+            assertEquals(1, delta.getInt());
+            assertEquals(3, delta.getInt());
+        }
+    }
+}
@@ -0,0 +1,65 @@
+package bguspl.set;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ForkJoinPool;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class ParallelSetEnumeratorTest {
+
+    private final ForkJoinPool pool = new ForkJoinPool(4);
+
+    @AfterEach
+    void tearDown() {
+        pool.shutdownNow();
+    }
+
+    private static List<String> unpack(long[] sets) {
+        List<String> keys = new ArrayList<>();
+        for (long set : sets)
+            keys.add(ParallelSetEnumerator.card(set, 0) + "," + ParallelSetEnumerator.card(set, 1) + ","
+                    + ParallelSetEnumerator.card(set, 2));
+        return keys;
+    }
+
+    @Test
+    void enumeratesTheSetsOfBruteForceInOrder() {
+        for (int featureCount = 3; featureCount <= 4; featureCount++) {
+            Config config = VectorizedSetSearchTest.config(featureCount);
+            Util util = new UtilImpl(config);
+            ParallelSetEnumerator enumerator = new ParallelSetEnumerator(config, pool);
+            for (long seed = 0; seed < 3; seed++) {
+                List<Integer> cards = VectorizedSetSearchTest.deal(config, config.deckSize - 5 * (int) seed, seed);
+                List<String> expected = VectorizedSetSearchTest.bruteForce(util, cards);
+                assertEquals(expected, unpack(enumerator.enumerate(cards, Long.MAX_VALUE)));
+                assertEquals(expected.size(), enumerator.count(cards, Long.MAX_VALUE));
+            }
+        }
+    }
+
+    @Test
+    void honoursTheLimit() {
+        Config config = VectorizedSetSearchTest.config(4);
+        Util util = new UtilImpl(config);
+        ParallelSetEnumerator enumerator = new ParallelSetEnumerator(config, pool);
+        List<Integer> cards = VectorizedSetSearchTest.deal(config, config.deckSize, 2);
+        for (long limit : new long[]{0, 1, 10, 100}) {
+            long[] sets = enumerator.enumerate(cards, limit);
+            assertEquals(limit, sets.length);
+            assertEquals(limit, enumerator.count(cards, limit));
+            Set<Long> distinct = new HashSet<>();
+            for (long set : sets) {
+                assertTrue(distinct.add(set), "duplicate set");
+                assertTrue(util.testSet(new int[]{ParallelSetEnumerator.card(set, 0),
+                        ParallelSetEnumerator.card(set, 1), ParallelSetEnumerator.card(set, 2)}));
+            }
+        }
+    }
+}
@@ -0,0 +1,122 @@
+package bguspl.set;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.Arrays;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+class ResultsStoreTest {
+
+    @TempDir
+    Path dir;
+
+    private static GameResult result(long seed, String strategy, int... scores) {
+        String[] strategies = new String[scores.length];
+        Arrays.fill(strategies, strategy);
+        int[] claims = new int[scores.length], penalties = new int[scores.length];
+        Arrays.setAll(claims, i -> scores[i] + 1);
+        Arrays.setAll(penalties, i -> 1);
+        return new GameResult(seed, 77, 1000 + seed, 500, strategies, scores, claims, penalties);
+    }
+
+    @Test
+    void encodedRecordDecodesToTheSameResult() {
+        char[] name = new char[300];
+        Arrays.fill(name, 's'); // longer than a byte can count
+        GameResult result = result(5, new String(name), 3, 0, 7);
+        ByteBuffer buffer = ByteBuffer.allocate(ResultsStore.encodedBytes(result));
+        ResultsStore.encode(result, buffer);
+        assertFalse(buffer.hasRemaining());
+
+        buffer.flip();
+        assertEquals(buffer.remaining() - Integer.BYTES, buffer.getInt());
+        GameResult decoded = ResultsStore.decode(buffer);
+        assertFalse(buffer.hasRemaining());
+        assertEquals(result.seed, decoded.seed);
+        assertEquals(result.configHash, decoded.configHash);
+        assertEquals(result.endTime, decoded.endTime);
+        assertEquals(result.durationMillis, decoded.durationMillis);
+        assertArrayEquals(result.strategies, decoded.strategies);
+        assertArrayEquals(result.scores, decoded.scores);
+        assertArrayEquals(result.claims, decoded.claims);
+        assertArrayEquals(result.penalties, decoded.penalties);
+    }
+
+    @Test
+    void tooLongStrategyNameIsRejected() {
+        char[] name = new char[0x10000];
+        Arrays.fill(name, 's');
+        assertThrows(IllegalArgumentException.class,
+                () -> ResultsStore.encodedBytes(result(1, new String(name), 1)));
+    }
+
+    @Test
+    void reopenedStoreRebuildsItsIndex() throws IOException {
+        Path file = dir.resolve("results.bin");
+        try (ResultsStore store = new ResultsStore(file, 128)) {
+            store.append(result(1, "solver", 2, 1));
+            store.append(result(2, "solver", 0, 4));
+        }
+        try (ResultsStore store = new ResultsStore(file, 128)) {
+            assertEquals(2, store.records());
+            ResultsStore.Stats stats = store.query("solver", 77);
+            assertEquals(4, stats.games);
+            assertEquals(2, stats.wins);
+            assertEquals(7, stats.totalScore);
+        }
+    }
+
+    @Test
+    void truncatedTailIsDropped() throws IOException {
+        Path file = dir.resolve("results.bin");
+        try (ResultsStore store = new ResultsStore(file, 1024)) {
+            store.append(result(1, "random", 1, 2));
+            store.append(result(2, "random", 3, 4));
+        }
+        long complete = Files.size(file);
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.WRITE)) {
+            channel.truncate(complete - 5); // a torn write of the last record
+        }
+        long firstRecordEnd = complete - ResultsStore.encodedBytes(result(2, "random", 3, 4));
+
+        try (ResultsStore store = new ResultsStore(file, 1024)) {
+            assertEquals(1, store.records());
+            assertEquals(firstRecordEnd, Files.size(file));
+            store.append(result(3, "random", 5, 6));
+        }
+        try (ResultsStore store = new ResultsStore(file, 1024)) {
+            assertEquals(2, store.records());
+            assertEquals(14, store.query("random", 77).totalScore);
+        }
+    }
+
+    @Test
+    void oversizedRecordLengthIsTreatedAsTruncation() throws IOException {
+        Path file = dir.resolve("results.bin");
+        try (ResultsStore store = new ResultsStore(file, 1024)) {
+            store.append(result(1, "random", 1, 2));
+        }
+        long complete = Files.size(file);
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.WRITE, StandardOpenOption.APPEND)) {
+            ByteBuffer garbage = ByteBuffer.allocate(16).putInt(Integer.MAX_VALUE).putLong(42).putInt(7);
+            garbage.flip();
+            channel.write(garbage);
+        }
+
+        try (ResultsStore store = new ResultsStore(file, 1024)) {
+            assertEquals(1, store.records());
+            assertEquals(complete, Files.size(file));
+        }
+    }
+}
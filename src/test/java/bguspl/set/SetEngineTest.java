@@ -0,0 +1,94 @@
+package bguspl.set;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Properties;
+import java.util.Random;
+import java.util.Set;
+import java.util.TreeSet;
+import java.util.logging.Logger;
+import java.util.stream.Collectors;
+import java.util.stream.IntStream;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class SetEngineTest {
+
+    private static Config config(int featureSize, int featureCount) {
+        Properties properties = new Properties();
+        properties.setProperty("FeatureSize", Integer.toString(featureSize));
+        properties.setProperty("FeatureCount", Integer.toString(featureCount));
+        return new Config(Logger.getAnonymousLogger(), properties);
+    }
+
+    /**
+     * Tests all the combinations of featureSize cards.
+     */
+    private static Set<String> bruteForce(Util util, List<Integer> cards, int k) {
+        Set<String> sets = new TreeSet<>();
+        int n = cards.size();
+        int[] combination = IntStream.range(0, k).toArray();
+        while (k <= n) {
+            int[] set = IntStream.of(combination).map(cards::get).sorted().toArray();
+            if (util.testSet(set)) sets.add(key(set));
+            int t = k - 1;
+            while (t >= 0 && combination[t] == n - k + t) --t;
+            if (t < 0) break;
+            combination[t]++;
+            for (int i = t + 1; i < k; i++) combination[i] = combination[i - 1] + 1;
+        }
+        return sets;
+    }
+
+    private static String key(int[] set) {
+        return IntStream.of(set).mapToObj(Integer::toString).collect(Collectors.joining(","));
+    }
+
+    private static void assertSameSets(int featureSize, int featureCount, int cardCount, long seed) {
+        Config config = config(featureSize, featureCount);
+        Util util = new UtilImpl(config);
+        List<Integer> cards = IntStream.range(0, config.deckSize).boxed().collect(Collectors.toList());
+        Collections.shuffle(cards, new Random(seed));
+        cards = new ArrayList<>(cards.subList(0, Math.min(cardCount, cards.size())));
+
+        List<int[]> found = new SetEngine(config).findSets(cards, Integer.MAX_VALUE);
+        Set<String> keys = new TreeSet<>();
+        for (int[] set : found) {
+            assertTrue(util.testSet(set));
+            keys.add(key(set));
+        }
+        assertEquals(found.size(), keys.size(), "duplicate sets");
+        assertEquals(bruteForce(util, cards, featureSize), keys);
+    }
+
+    @Test
+    void matchesBruteForceForFourCardSets() {
+        for (long seed = 0; seed < 5; seed++)
+            assertSameSets(4, 3, 24, seed);
+        assertSameSets(4, 2, 16, 0);
+    }
+
+    @Test
+    void matchesBruteForceForFiveCardSets() {
+        for (long seed = 0; seed < 3; seed++)
+            assertSameSets(5, 2, 25, seed);
+        assertSameSets(5, 3, 30, 7);
+    }
+
+    @Test
+    void matchesBruteForceForSmallFeatureSizes() {
+        assertSameSets(2, 3, 8, 0);
+        assertSameSets(3, 3, 15, 1);
+    }
+
+    @Test
+    void stopsAfterCountSets() {
+        Config config = config(4, 3);
+        List<Integer> cards = IntStream.range(0, config.deckSize).boxed().collect(Collectors.toList());
+        assertEquals(5, new SetEngine(config).findSets(cards, 5).size());
+    }
+}
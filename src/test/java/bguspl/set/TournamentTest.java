@@ -0,0 +1,98 @@
+package bguspl.set;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.Properties;
+import java.util.logging.Logger;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class TournamentTest {
+
+    @TempDir
+    Path dir;
+
+    private final Logger logger = Logger.getAnonymousLogger();
+
+    private Properties tournament() {
+        Properties properties = new Properties();
+        properties.setProperty("LogLevel", "OFF");
+        properties.setProperty("FeatureCount", "3");
+        properties.setProperty("HumanPlayers", "2");
+        properties.setProperty("ComputerPlayers", "1");
+        properties.setProperty("ComputerStrategy", "solver");
+        properties.setProperty("TableDelaySeconds", "0");
+        properties.setProperty("PointFreezeSeconds", "0");
+        properties.setProperty("ReshufflePolicy", "dead-table");
+        properties.setProperty("UserInterface", "swing");
+        properties.setProperty("ResultsFile", "results.bin");
+        properties.setProperty("NetworkPort", "7777");
+        properties.setProperty("Workers", "4");
+        return properties;
+    }
+
+    @Test
+    void gamePropertiesPlayHeadlessComputerGamesWithoutOutputs() {
+        Config config = new Config(logger, TournamentWorker.gameProperties(logger, tournament()));
+        assertEquals(0, config.humanPlayers);
+        assertEquals(3, config.computerPlayers);
+        assertTrue(config.headless);
+        assertEquals(1, config.tables);
+        assertEquals(0, config.workers);
+        assertEquals(-1, config.networkPort);
+        assertTrue(config.resultsFile.isEmpty());
+        assertTrue(config.checkpointFile.isEmpty());
+        assertEquals(0, config.endGamePauseMillies);
+        // the rules of the game are kept
+        assertEquals(3, config.featureCount);
+        assertEquals("solver", config.computerStrategy);
+    }
+
+    @Test
+    void resultsWrittenByAWorkerAreReadByTheCoordinator() throws Exception {
+        ByteArrayOutputStream seeds = new ByteArrayOutputStream();
+        try (DataOutputStream out = new DataOutputStream(seeds)) {
+            out.writeLong(11);
+            out.writeLong(12);
+        }
+        Path file = dir.resolve("results");
+        try (FileChannel output = FileChannel.open(file, StandardOpenOption.CREATE, StandardOpenOption.WRITE)) {
+            new TournamentWorker(logger, tournament()).serve(new ByteArrayInputStream(seeds.toByteArray()), output);
+        }
+
+        try (DataInputStream in = new DataInputStream(Files.newInputStream(file))) {
+            for (long seed = 11; seed <= 12; seed++) {
+                GameResult result = TournamentCoordinator.readResult(in);
+                assertEquals(seed, result.seed);
+                assertEquals(3, result.players());
+                for (int i = 0; i < result.players(); i++)
+                    assertEquals("solver", result.strategies[i]);
+            }
+            assertEquals(-1, in.read());
+        }
+    }
+
+    @Test
+    void invalidResultLengthIsRejected() throws IOException {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        try (DataOutputStream out = new DataOutputStream(bytes)) {
+            out.writeInt(Integer.MAX_VALUE);
+        }
+        DataInputStream in = new DataInputStream(new ByteArrayInputStream(bytes.toByteArray()));
+        assertThrows(IOException.class, () -> TournamentCoordinator.readResult(in));
+        assertFalse(in.available() > 0);
+    }
+}
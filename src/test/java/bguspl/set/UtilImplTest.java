@@ -0,0 +1,45 @@
+package bguspl.set;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.Properties;
+import java.util.logging.Logger;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class UtilImplTest {
+
+    private static Config config(long setTableMaxBytes) {
+        Properties properties = new Properties();
+        properties.setProperty("SetTableMaxBytes", Long.toString(setTableMaxBytes));
+        return new Config(Logger.getAnonymousLogger(), properties);
+    }
+
+    @Test
+    void completionTableMatchesTheArithmeticTest() {
+        UtilImpl table = new UtilImpl(config(1 << 20));
+        UtilImpl arithmetic = new UtilImpl(config(0));
+        assertTrue(table.hasCompletionTable());
+        assertFalse(arithmetic.hasCompletionTable());
+
+        int deckSize = table.fullDeck().size();
+        for (int a = 0; a < deckSize; a++)
+            for (int b = 0; b < deckSize; b++) {
+                int c = table.completeSet(a, b);
+                assertTrue(arithmetic.testSet(new int[]{a, b, c}), a + "," + b + "," + c);
+                for (int card = 0; card < deckSize; card++)
+                    assertEquals(arithmetic.testSet(new int[]{a, b, card}), table.testSet(new int[]{a, b, card}));
+            }
+    }
+
+    @Test
+    void invalidCardIdsAreNotLookedUp() {
+        UtilImpl table = new UtilImpl(config(1 << 20));
+        UtilImpl arithmetic = new UtilImpl(config(0));
+        int[][] claims = {{-1, 0, 1}, {0, 81, 5}, {100000, 2, 3}, {0, 1, 81}};
+        for (int[] claim : claims)
+            assertEquals(arithmetic.testSet(claim), table.testSet(claim));
+    }
+}
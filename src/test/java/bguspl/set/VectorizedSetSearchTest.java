@@ -0,0 +1,87 @@
+package bguspl.set;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Properties;
+import java.util.Random;
+import java.util.logging.Logger;
+import java.util.stream.Collectors;
+import java.util.stream.IntStream;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class VectorizedSetSearchTest {
+
+    static Config config(int featureCount) {
+        Properties properties = new Properties();
+        properties.setProperty("FeatureCount", Integer.toString(featureCount));
+        properties.setProperty("SetTableMaxBytes", "0"); // the arithmetic test is the reference
+        return new Config(Logger.getAnonymousLogger(), properties);
+    }
+
+    static List<Integer> deal(Config config, int cards, long seed) {
+        List<Integer> deck = IntStream.range(0, config.deckSize).boxed().collect(Collectors.toList());
+        Collections.shuffle(deck, new Random(seed));
+        return new ArrayList<>(deck.subList(0, Math.min(cards, deck.size())));
+    }
+
+    /**
+     * @return - all the legal sets of the cards (sorted card ids, in lexicographic order).
+     */
+    static List<String> bruteForce(Util util, List<Integer> cards) {
+        int[] sorted = cards.stream().mapToInt(Integer::intValue).sorted().toArray();
+        List<String> sets = new ArrayList<>();
+        for (int i = 0; i < sorted.length; i++)
+            for (int j = i + 1; j < sorted.length; j++)
+                for (int k = j + 1; k < sorted.length; k++)
+                    if (util.testSet(new int[]{sorted[i], sorted[j], sorted[k]}))
+                        sets.add(sorted[i] + "," + sorted[j] + "," + sorted[k]);
+        return sets;
+    }
+
+    @Test
+    void findsTheSetsOfBruteForceInOrder() {
+        for (int featureCount = 2; featureCount <= 4; featureCount++) {
+            Config config = config(featureCount);
+            Util util = new UtilImpl(config);
+            for (long seed = 0; seed < 5; seed++) {
+                List<Integer> cards = deal(config, 12 + 6 * (int) seed, seed);
+                List<String> found = new ArrayList<>();
+                long count = new VectorizedSetSearch(config, cards).search((a, b, c) -> found.add(a + "," + b + "," + c));
+                assertEquals(bruteForce(util, cards), found);
+                assertEquals(found.size(), count);
+            }
+        }
+    }
+
+    @Test
+    void stopsWhenTheConsumerDeclines() {
+        Config config = config(4);
+        List<Integer> cards = deal(config, config.deckSize, 0);
+        List<String> expected = bruteForce(new UtilImpl(config), cards).subList(0, 7);
+        List<String> found = new ArrayList<>();
+        new VectorizedSetSearch(config, cards).search((a, b, c) -> {
+            found.add(a + "," + b + "," + c);
+            return found.size() < 7;
+        });
+        assertEquals(expected, found);
+    }
+
+    @Test
+    void findSetsHonoursTheCount() {
+        Config config = config(4);
+        Util util = new UtilImpl(config);
+        List<Integer> cards = deal(config, config.deckSize, 1);
+        for (int count : new int[]{1, 3, 50}) {
+            List<int[]> sets = util.findSets(cards, count);
+            assertEquals(count, sets.size());
+            for (int[] set : sets)
+                assertTrue(util.testSet(set));
+        }
+        assertEquals(bruteForce(util, cards).size(), util.findSets(cards, Integer.MAX_VALUE).size());
+    }
+}
@@ -0,0 +1,138 @@
+package bguspl.set.ex;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.Set;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class ActionRingTest {
+
+    @Test
+    void dropsNewSlotsWhenFull() {
+        ActionRing ring = new ActionRing(3, false);
+        for (int slot = 0; slot < 3; slot++)
+            assertTrue(ring.offer(slot));
+        assertFalse(ring.offer(3));
+        assertEquals(1, ring.drops());
+        assertEquals(0, ring.poll());
+        assertEquals(1, ring.poll());
+        assertEquals(2, ring.poll());
+        assertEquals(-1, ring.poll());
+    }
+
+    @Test
+    void overwritesOldestSlotsWhenFull() {
+        ActionRing ring = new ActionRing(3, true);
+        for (int slot = 0; slot < 5; slot++)
+            assertTrue(ring.offer(slot));
+        assertEquals(2, ring.drops());
+        assertEquals(3, ring.size());
+        assertEquals(2, ring.poll());
+        assertEquals(3, ring.poll());
+        assertEquals(4, ring.poll());
+    }
+
+    @Test
+    void clearDiscardsWaitingSlots() {
+        ActionRing ring = new ActionRing(3, false);
+        ring.offer(7);
+        ring.offer(8);
+        ring.clear();
+        assertEquals(0, ring.size());
+        assertEquals(-1, ring.poll());
+        ring.offer(9);
+        assertEquals(9, ring.poll());
+    }
+
+    @Test
+    void consumerReceivesSlotsInOrder() throws InterruptedException {
+        ActionRing ring = new ActionRing(3, false);
+        int count = 100000;
+        Thread producer = new Thread(() -> {
+            for (int slot = 0; slot < count; slot++)
+                while (!ring.offer(slot))
+                    Thread.yield();
+        });
+        producer.start();
+        for (int slot = 0; slot < count; slot++)
+            assertEquals(slot, ring.take());
+        producer.join();
+        assertEquals(0, ring.size());
+    }
+
+    @Test
+    void concurrentProducersNeitherLoseNorDuplicateSlots() throws InterruptedException {
+        ActionRing ring = new ActionRing(3, false);
+        int producers = 4;
+        int perProducer = 50000;
+        Thread[] threads = new Thread[producers];
+        for (int p = 0; p < producers; p++) {
+            int first = p * perProducer;
+            threads[p] = new Thread(() -> {
+                for (int slot = first; slot < first + perProducer; slot++)
+                    while (!ring.offer(slot))
+                        Thread.yield();
+            });
+            threads[p].start();
+        }
+        // every slot arrives exactly once, and the slots of each producer arrive in order
+        boolean[] seen = new boolean[producers * perProducer];
+        int[] last = new int[producers];
+        Arrays.fill(last, -1);
+        for (int i = 0; i < seen.length; i++) {
+            int slot = ring.take();
+            assertFalse(seen[slot], "duplicate slot " + slot);
+            seen[slot] = true;
+            assertTrue(slot > last[slot / perProducer]);
+            last[slot / perProducer] = slot;
+        }
+        for (Thread thread : threads)
+            thread.join();
+        assertEquals(0, ring.size());
+        assertEquals(-1, ring.poll());
+    }
+
+    @Test
+    void concurrentOverwritingProducersKeepTheRingConsistent() throws InterruptedException {
+        ActionRing ring = new ActionRing(3, true);
+        int producers = 4;
+        int perProducer = 20000;
+        Thread[] threads = new Thread[producers];
+        for (int p = 0; p < producers; p++) {
+            int first = p * perProducer;
+            threads[p] = new Thread(() -> {
+                for (int slot = first; slot < first + perProducer; slot++)
+                    ring.offer(slot);
+            });
+            threads[p].start();
+        }
+        Set<Integer> received = new HashSet<>();
+        int polled = 0;
+        while (Arrays.stream(threads).anyMatch(Thread::isAlive)) {
+            int slot = ring.poll();
+            if (slot >= 0) {
+                assertTrue(received.add(slot), "duplicate slot " + slot);
+                polled++;
+            }
+        }
+        for (Thread thread : threads)
+            thread.join();
+        for (int slot; (slot = ring.poll()) >= 0; polled++)
+            assertTrue(received.add(slot), "duplicate slot " + slot);
+        // every slot was either received once or counted as overwritten
+        assertEquals(producers * perProducer, polled + ring.drops());
+    }
+
+    @Test
+    void interruptedConsumerStopsWaiting() {
+        ActionRing ring = new ActionRing(3, false);
+        Thread.currentThread().interrupt();
+        assertThrows(InterruptedException.class, ring::take);
+    }
+}
@@ -0,0 +1,48 @@
+package bguspl.set.ex;
+
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+class ClaimVerdictCacheTest {
+
+    @Test
+    void missThenHitInAnyCardOrder() {
+        ClaimVerdictCache cache = new ClaimVerdictCache(16, 81, 3);
+        assertEquals(ClaimVerdictCache.UNKNOWN, cache.get(new int[]{1, 2, 3}));
+        assertEquals(1, cache.misses());
+
+        cache.put(new int[]{1, 2, 3}, true);
+        cache.put(new int[]{4, 5, 6}, false);
+        assertEquals(1, cache.get(new int[]{3, 1, 2}));
+        assertEquals(0, cache.get(new int[]{6, 5, 4}));
+        assertEquals(2, cache.hits());
+        assertEquals(1, cache.misses());
+    }
+
+    @Test
+    void fullCacheEvictsAnEntry() {
+        ClaimVerdictCache cache = new ClaimVerdictCache(2, 81, 3);
+        int[][] claims = {{1, 2, 3}, {4, 5, 6}, {7, 8, 9}};
+        for (int[] claim : claims)
+            cache.put(claim, true);
+
+        // the newest claim is kept, and one of the older ones made room for it
+        assertEquals(1, cache.get(claims[2]));
+        int kept = 0;
+        for (int i = 0; i < 2; i++)
+            if (cache.get(claims[i]) != ClaimVerdictCache.UNKNOWN) kept++;
+        assertEquals(1, kept);
+    }
+
+    @Test
+    void disabledCacheKnowsNothing() {
+        ClaimVerdictCache cache = new ClaimVerdictCache(0, 81, 3);
+        cache.put(new int[]{1, 2, 3}, true);
+        assertEquals(ClaimVerdictCache.UNKNOWN, cache.get(new int[]{1, 2, 3}));
+        // claims of another size are not cached either
+        ClaimVerdictCache sized = new ClaimVerdictCache(16, 81, 3);
+        sized.put(new int[]{1, 2}, true);
+        assertEquals(ClaimVerdictCache.UNKNOWN, sized.get(new int[]{1, 2}));
+    }
+}
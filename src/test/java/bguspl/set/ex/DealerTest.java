@@ -0,0 +1,255 @@
+package bguspl.set.ex;
+
+import bguspl.set.Config;
+import bguspl.set.Env;
+import bguspl.set.GameResult;
+import bguspl.set.UserInterface;
+import bguspl.set.UtilImpl;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Properties;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.logging.Logger;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.ArgumentMatchers.anyBoolean;
+import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.Mockito.doAnswer;
+
+@ExtendWith(MockitoExtension.class)
+class DealerTest {
+
+    @Mock
+    private UserInterface ui;
+    @Mock
+    private Logger logger;
+
+    private class Game {
+        final Env env;
+        final Table table;
+        final Player[] players;
+        final Dealer dealer;
+
+        Game(long seed, String... properties) {
+            Properties p = new Properties();
+            p.setProperty("TableDelaySeconds", "0");
+            p.setProperty("ComputerPlayers", "3");
+            p.setProperty("Seed", Long.toString(seed));
+            for (int i = 0; i < properties.length; i += 2)
+                p.setProperty(properties[i], properties[i + 1]);
+            Config config = new Config(logger, p);
+            env = new Env(logger, config, ui, new UtilImpl(config));
+            table = new Table(env);
+            players = new Player[config.players];
+            dealer = new Dealer(env, table, players);
+            for (int i = 0; i < players.length; i++)
+                players[i] = new Player(env, dealer, table, i, i < config.humanPlayers);
+        }
+
+        List<Integer> cardsOnTable() {
+            List<Integer> cards = new ArrayList<>();
+            for (Integer card : table.slotToCard)
+                if (card != null) cards.add(card);
+            return cards;
+        }
+
+        void claim(int player, int... cards) {
+            synchronized (table) {
+                for (int card : cards)
+                    table.placeToken(player, table.cardToSlot[card]);
+            }
+            table.submitClaim(player);
+        }
+    }
+
+    @Test
+    void overlappingClaimsOfABatchAreDroppedWithoutPenalty() {
+        Game game = new Game(3);
+        game.dealer.step();
+        List<Integer> cards = game.cardsOnTable();
+        int[] set = game.env.util.findSets(cards, 1).get(0);
+        List<Integer> others = new ArrayList<>(cards);
+        for (int card : set) others.remove((Integer) card);
+        // a wrong claim that shares no card with the set
+        int[] wrong = null;
+        for (int i = 0; wrong == null && i < others.size(); i++)
+            for (int j = i + 1; wrong == null && j < others.size(); j++)
+                for (int k = j + 1; k < others.size(); k++) {
+                    int[] claim = {others.get(i), others.get(j), others.get(k)};
+                    if (!game.env.util.testSet(claim)) {
+                        wrong = claim;
+                        break;
+                    }
+                }
+        assertNotNull(wrong);
+
+        // player 0 claims the set first, player 1 claims a card of it too, and player 2 claims a wrong set
+        game.claim(0, set);
+        game.claim(1, set[0], wrong[0], wrong[1]);
+        game.claim(2, wrong);
+        game.dealer.step();
+
+        assertEquals(1, game.dealer.scoreboard().score(0));
+        for (int card : set)
+            assertNull(game.table.cardToSlot[card]);
+        GameResult result = game.dealer.result();
+        assertEquals(1, result.claims[0]);
+        assertEquals(0, result.claims[1]);
+        assertEquals(0, result.penalties[1]);
+        assertEquals(1, result.claims[2]);
+        assertEquals(1, result.penalties[2]);
+        // the dropped claim only lost the token on the taken card
+        assertEquals(2, game.table.getTokens(1).size());
+        assertTrue(game.table.waitingPlayers.isEmpty());
+    }
+
+    @Test
+    void claimThatLostATokenIsDroppedWithoutPenalty() {
+        Game game = new Game(5);
+        game.dealer.step();
+        int[] set = game.env.util.findSets(game.cardsOnTable(), 1).get(0);
+        game.claim(1, set);
+        synchronized (game.table) {
+            game.table.removeToken(1, game.table.cardToSlot[set[0]]);
+        }
+        game.dealer.step();
+
+        GameResult result = game.dealer.result();
+        assertEquals(0, game.dealer.scoreboard().score(1));
+        assertEquals(0, result.claims[1]);
+        assertEquals(0, result.penalties[1]);
+    }
+
+    @Test
+    void claimOfFourCardsWakesUpTheDealer() throws InterruptedException {
+        Game game = new Game(2, "FeatureSize", "4", "HumanPlayers", "1", "ComputerPlayers", "0",
+                "ReshufflePolicy", "dead-table", "TurnTimeoutWarningSeconds", "5");
+        AtomicInteger ticks = new AtomicInteger();
+        doAnswer(invocation -> ticks.incrementAndGet()).when(ui).setCountdown(anyLong(), anyBoolean());
+        Thread dealerThread = new Thread(game.dealer, "dealer");
+        dealerThread.start();
+        try {
+            awaitNextTurn(game, dealerThread);
+            int[] set = game.env.util.findSets(game.cardsOnTable(), 1).get(0);
+            assertEquals(4, set.length);
+            // the tokens are placed one at a time, as a player does
+            for (int card : set) {
+                synchronized (game.table) {
+                    game.table.placeToken(0, game.table.cardToSlot[card]);
+                }
+            }
+            // right after a countdown update the dealer's next turn is a second away
+            int tick = ticks.get();
+            while (ticks.get() == tick) Thread.sleep(1);
+            awaitNextTurn(game, dealerThread);
+
+            long judged = System.currentTimeMillis() + 500;
+            game.table.submitClaim(0);
+            while (game.dealer.scoreboard().score(0) == 0) {
+                assertTrue(System.currentTimeMillis() < judged, "the claim waited for the dealer's timeout");
+                Thread.sleep(1);
+            }
+        } finally {
+            game.dealer.terminate();
+            dealerThread.interrupt();
+            dealerThread.join(5000);
+        }
+    }
+
+    /**
+     * Waits until the dealer waits for its next turn on a table with a set.
+     */
+    private static void awaitNextTurn(Game game, Thread dealerThread) throws InterruptedException {
+        long deadline = System.currentTimeMillis() + 10000;
+        while (!(game.table.hasSet() && dealerThread.getState() == Thread.State.TIMED_WAITING)) {
+            assertTrue(System.currentTimeMillis() < deadline);
+            Thread.sleep(1);
+        }
+    }
+
+    @Test
+    void policiesAreParsedByName() {
+        for (ReshufflePolicy policy : ReshufflePolicy.values())
+            assertEquals(policy, ReshufflePolicy.of(policy.toString(), logger));
+        assertEquals(ReshufflePolicy.TIMEOUT, ReshufflePolicy.of("sometimes", logger));
+    }
+
+    /**
+     * A game on a 9 card deck (so a table of 4 cards often has no set, and 5 cards always have one).
+     */
+    private Game smallGame(long seed, ReshufflePolicy policy, int columns) {
+        return new Game(seed, "FeatureCount", "2", "Rows", "2", "Columns", Integer.toString(columns),
+                "ReshufflePolicy", policy.toString());
+    }
+
+    @Test
+    void timeoutPolicyLeavesADeadTable() {
+        int dead = 0;
+        for (long seed = 1; seed <= 20; seed++) {
+            Game game = smallGame(seed, ReshufflePolicy.TIMEOUT, 2);
+            assertTrue(game.dealer.step());
+            assertEquals(4, game.table.countCards());
+            assertEquals(0, game.dealer.reshuffles());
+            if (!game.table.hasSet()) dead++;
+        }
+        assertTrue(dead > 0);
+    }
+
+    @Test
+    void deadTablePolicyReshufflesAtMostOncePerStep() {
+        int reshuffled = 0;
+        for (long seed = 1; seed <= 20; seed++) {
+            Game game = smallGame(seed, ReshufflePolicy.DEAD_TABLE, 2);
+            int steps = 0;
+            for (int before = 0; steps < 50; steps++) {
+                assertTrue(game.dealer.step());
+                assertTrue(game.dealer.reshuffles() - before <= 1);
+                before = game.dealer.reshuffles();
+                if (game.table.hasSet()) break;
+            }
+            assertTrue(game.table.hasSet());
+            assertEquals(4, game.table.countCards());
+            reshuffled += game.dealer.reshuffles();
+        }
+        assertTrue(reshuffled > 0);
+    }
+
+    @Test
+    void extraCardsPolicyAddsCardsUntilThereIsASet() {
+        int extended = 0;
+        for (long seed = 1; seed <= 20; seed++) {
+            Game game = smallGame(seed, ReshufflePolicy.EXTRA_CARDS, 3);
+            assertTrue(game.dealer.step());
+            assertTrue(game.table.hasSet());
+            assertEquals(0, game.dealer.reshuffles());
+            int cards = game.table.countCards();
+            assertTrue(cards == 3 || cards == 6, "cards: " + cards);
+            if (cards == 6) extended++;
+        }
+        assertTrue(extended > 0);
+    }
+
+    @Test
+    void partialPolicyReplacesCardsUntilThereIsASet() {
+        int replaced = 0;
+        for (long seed = 1; seed <= 20; seed++) {
+            Game game = smallGame(seed, ReshufflePolicy.PARTIAL, 2);
+            for (int steps = 0; steps < 50 && !game.table.hasSet(); steps++)
+                assertTrue(game.dealer.step());
+            assertTrue(game.table.hasSet());
+            assertEquals(4, game.table.countCards());
+            // every card is either on the table or in the deck
+            assertEquals(9, game.table.countCards() + game.dealer.deckRemaining());
+            replaced += game.dealer.reshuffles();
+        }
+        assertTrue(replaced > 0);
+    }
+}
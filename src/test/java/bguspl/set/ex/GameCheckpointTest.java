@@ -0,0 +1,174 @@
+package bguspl.set.ex;
+
+import bguspl.set.Config;
+import bguspl.set.Env;
+import bguspl.set.UserInterface;
+import bguspl.set.UtilImpl;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.junit.jupiter.api.io.TempDir;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Properties;
+import java.util.logging.Logger;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+@ExtendWith(MockitoExtension.class)
+class GameCheckpointTest {
+
+    @Mock
+    private UserInterface ui;
+    @Mock
+    private Logger logger;
+    @TempDir
+    Path dir;
+
+    private static final int TIMER_OFFSET = 4 * 6 + 8 * 2; // header, seed and random state
+
+    private class Game {
+        final Env env;
+        final Table table;
+        final Player[] players;
+        final Dealer dealer;
+
+        Game(long seed, String... overrides) {
+            Properties properties = new Properties();
+            properties.setProperty("TableDelaySeconds", "0");
+            properties.setProperty("Seed", Long.toString(seed));
+            for (int i = 0; i < overrides.length; i += 2)
+                properties.setProperty(overrides[i], overrides[i + 1]);
+            Config config = new Config(logger, properties);
+            env = new Env(logger, config, ui, new UtilImpl(config));
+            table = new Table(env);
+            players = new Player[config.players];
+            dealer = new Dealer(env, table, players);
+            for (int i = 0; i < players.length; i++)
+                players[i] = new Player(env, dealer, table, i, false);
+        }
+    }
+
+    @Test
+    void restoredGameContinuesFromTheSameState() throws IOException {
+        Game game = new Game(42);
+        game.dealer.step();
+        synchronized (game.table) {
+            game.table.placeToken(1, 3);
+        }
+        Path file = dir.resolve("game.checkpoint");
+        new GameCheckpoint(game.env, file).write(game.dealer);
+
+        Game resumed = new Game(7);
+        assertTrue(new GameCheckpoint(resumed.env, file).restore(resumed.dealer));
+        assertArrayEquals(game.table.slotToCard, resumed.table.slotToCard);
+        assertEquals(game.table.getTokens(1), resumed.table.getTokens(1));
+        assertEquals(game.dealer.deckRemaining(), resumed.dealer.deckRemaining());
+
+        // both games deal the same cards from now on
+        Path again = dir.resolve("again.checkpoint");
+        new GameCheckpoint(game.env, file).write(game.dealer);
+        new GameCheckpoint(resumed.env, again).write(resumed.dealer);
+        byte[] expected = Files.readAllBytes(file);
+        byte[] actual = Files.readAllBytes(again);
+        assertEquals(expected.length, actual.length);
+        Arrays.fill(expected, TIMER_OFFSET, TIMER_OFFSET + 8, (byte) 0);
+        Arrays.fill(actual, TIMER_OFFSET, TIMER_OFFSET + 8, (byte) 0);
+        assertArrayEquals(expected, actual);
+    }
+
+    @Test
+    void resumedGameWithASetOnlyAcrossDeckAndTableGoesOn() throws IOException {
+        // a 9 card deck and a table of 6 cards, so 3 cards are left in the deck
+        String[] small = {"FeatureCount", "2", "Rows", "2", "Columns", "3", "ComputerPlayers", "1"};
+        Game game = null;
+        for (long seed = 1; game == null; seed++) {
+            Game candidate = new Game(seed, small);
+            candidate.dealer.step();
+            List<Integer> deck = new ArrayList<>();
+            for (int card = 0; card < candidate.env.config.deckSize; card++)
+                if (candidate.table.cardToSlot[card] == null) deck.add(card);
+            if (candidate.env.util.findSets(deck, 1).isEmpty()) game = candidate;
+        }
+        Path file = dir.resolve("game.checkpoint");
+        new GameCheckpoint(game.env, file).write(game.dealer);
+
+        Game resumed = new Game(1, small);
+        GameCheckpoint checkpoint = new GameCheckpoint(resumed.env, file);
+        assertTrue(checkpoint.restore(resumed.dealer));
+        resumed.dealer.setCheckpoint(checkpoint);
+        try {
+            assertTrue(resumed.dealer.start());
+            assertTrue(resumed.dealer.step());
+            assertEquals(6, resumed.table.countCards());
+        } finally {
+            resumed.dealer.terminate();
+            resumed.dealer.finish();
+        }
+        // the game was interrupted, not over, so it can still be resumed
+        assertTrue(Files.exists(file));
+    }
+
+    @Test
+    void missingCheckpointIsNotRestored() throws IOException {
+        Game game = new Game(1);
+        assertFalse(new GameCheckpoint(game.env, dir.resolve("none")).restore(game.dealer));
+    }
+
+    @Test
+    void truncatedCheckpointIsRejected() throws IOException {
+        Game game = new Game(1);
+        game.dealer.step();
+        Path file = dir.resolve("game.checkpoint");
+        new GameCheckpoint(game.env, file).write(game.dealer);
+        byte[] bytes = Files.readAllBytes(file);
+        Files.write(file, Arrays.copyOf(bytes, bytes.length - 10));
+
+        Game resumed = new Game(1);
+        assertThrows(IOException.class, () -> new GameCheckpoint(resumed.env, file).restore(resumed.dealer));
+        assertEquals(0, resumed.table.countCards());
+    }
+
+    @Test
+    void cardInTheDeckAndOnTheTableIsRejected() throws IOException {
+        Game game = new Game(1);
+        game.dealer.step();
+        Path file = dir.resolve("game.checkpoint");
+        new GameCheckpoint(game.env, file).write(game.dealer);
+        ByteBuffer bytes = ByteBuffer.wrap(Files.readAllBytes(file));
+        int deckOffset = TIMER_OFFSET + 8 + 3 * 4; // the countdown and the counters
+        int deckCards = bytes.getInt(deckOffset);
+        int firstSlot = deckOffset + 4 + 4 * deckCards;
+        // the first card on the table is also the first card of the deck
+        bytes.putInt(deckOffset + 4, bytes.getInt(firstSlot));
+        Files.write(file, bytes.array());
+
+        Game resumed = new Game(1);
+        assertThrows(IOException.class, () -> new GameCheckpoint(resumed.env, file).restore(resumed.dealer));
+        assertEquals(0, resumed.table.countCards());
+    }
+
+    @Test
+    void deckLargerThanTheConfigurationIsRejected() throws IOException {
+        Game game = new Game(1);
+        Path file = dir.resolve("game.checkpoint");
+        new GameCheckpoint(game.env, file).write(game.dealer);
+        ByteBuffer bytes = ByteBuffer.wrap(Files.readAllBytes(file));
+        bytes.putInt(TIMER_OFFSET + 8 + 3 * 4, Integer.MAX_VALUE);
+        Files.write(file, bytes.array());
+
+        Game resumed = new Game(1);
+        assertThrows(IOException.class, () -> new GameCheckpoint(resumed.env, file).restore(resumed.dealer));
+    }
+}
@@ -34,6 +34,8 @@ class PlayerTest {
     @Mock
     private Logger logger;
 
+    private final Scoreboard scoreboard = new Scoreboard(1);
+
     void assertInvariants() {
         assertTrue(player.id >= 0);
         assertTrue(player.score() >= 0);
@@ -43,6 +45,7 @@ class PlayerTest {
     void setUp() {
         // purposely do not find the configuration files (use defaults here).
         Env env = new Env(logger, new Config(logger, (String) null), ui, util);
+        when(dealer.scoreboard()).thenReturn(scoreboard);
         player = new Player(env, dealer, table, 0, false);
         assertInvariants();
     }
@@ -61,7 +64,8 @@ class PlayerTest {
         // calculate the expected score for later
         int expectedScore = player.score() + 1;
 
-        // call the method we are testing
+        // the dealer awards the point on its scoreboard, then calls the method we are testing
+        scoreboard.add(player.id, 1);
         player.point();
 
         // check that the score was increased correctly
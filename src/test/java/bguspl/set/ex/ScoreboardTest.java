@@ -0,0 +1,52 @@
+package bguspl.set.ex;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.Comparator;
+import java.util.Random;
+import java.util.stream.IntStream;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+class ScoreboardTest {
+
+    @Test
+    void allPlayersTieAtStart() {
+        Scoreboard scoreboard = new Scoreboard(4);
+        assertArrayEquals(new int[]{0, 1, 2, 3}, scoreboard.leaders());
+        assertArrayEquals(new int[]{0, 1, 2, 3}, scoreboard.leaderboard());
+    }
+
+    @Test
+    void leadersIncludeEveryTiedPlayer() {
+        Scoreboard scoreboard = new Scoreboard(5);
+        scoreboard.add(4, 2);
+        scoreboard.add(1, 2);
+        scoreboard.add(3, 2);
+        scoreboard.add(0, 1);
+        assertArrayEquals(new int[]{1, 3, 4}, scoreboard.leaders());
+        assertEquals(3, scoreboard.rank(0));
+        assertEquals(4, scoreboard.rank(2));
+    }
+
+    @Test
+    void leaderboardMatchesSortedScores() {
+        int players = 40;
+        Scoreboard scoreboard = new Scoreboard(players);
+        int[] scores = new int[players];
+        Random random = new Random(7);
+        for (int i = 0; i < 5000; i++) {
+            int player = random.nextInt(players);
+            int points = random.nextInt(10) == 0 ? -1 : 1;
+            scores[player] += points;
+            assertEquals(scores[player], scoreboard.add(player, points));
+
+            int[] expected = IntStream.range(0, players).boxed()
+                    .sorted(Comparator.<Integer>comparingInt(p -> -scores[p]).thenComparingInt(p -> p))
+                    .mapToInt(Integer::intValue).toArray();
+            assertArrayEquals(expected, scoreboard.leaderboard());
+        }
+        assertArrayEquals(scores, scoreboard.scores());
+    }
+}
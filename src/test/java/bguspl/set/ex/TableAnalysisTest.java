@@ -0,0 +1,81 @@
+package bguspl.set.ex;
+
+import bguspl.set.Config;
+import bguspl.set.Env;
+import bguspl.set.UserInterfaceHeadless;
+import bguspl.set.UtilImpl;
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+import java.util.Properties;
+import java.util.logging.Logger;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNotSame;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class TableAnalysisTest {
+
+    /**
+     * @param setTableMaxBytes - 0 to search for the sets, or enough for the completion table to be looked up.
+     */
+    private static Table table(long setTableMaxBytes) {
+        Properties properties = new Properties();
+        properties.setProperty("TableDelaySeconds", "0");
+        properties.setProperty("SetTableMaxBytes", Long.toString(setTableMaxBytes));
+        Logger logger = Logger.getAnonymousLogger();
+        Config config = new Config(logger, properties);
+        return new Table(new Env(logger, config, new UserInterfaceHeadless(config), new UtilImpl(config)));
+    }
+
+    private static void analysisFollowsTheTableVersion(Table table) {
+        TableAnalysis analysis = table.analysis();
+        // cards 0, 1 and 2 differ only in the last feature, so they form a set (and 9 does not complete any pair)
+        synchronized (table) {
+            table.placeCard(0, 0);
+            table.placeCard(1, 1);
+            table.placeCard(9, 3);
+        }
+        assertFalse(analysis.hasSet());
+        assertTrue(analysis.sets().isEmpty());
+
+        synchronized (table) {
+            table.placeCard(2, 2);
+        }
+        assertTrue(analysis.hasSet());
+        List<int[]> sets = analysis.sets();
+        assertEquals(1, sets.size());
+        assertArrayEquals(new int[]{0, 1, 2}, sets.get(0));
+        // unchanged version: the same analysis is returned
+        assertSame(sets, analysis.sets());
+
+        long version = table.version();
+        synchronized (table) {
+            table.removeCard(1);
+        }
+        assertTrue(table.version() != version);
+        assertFalse(analysis.hasSet());
+        List<int[]> after = analysis.sets();
+        assertNotSame(sets, after);
+        assertTrue(after.isEmpty());
+
+        synchronized (table) {
+            table.placeCard(1, 1);
+        }
+        assertTrue(analysis.hasSet());
+        assertEquals(1, analysis.sets().size());
+    }
+
+    @Test
+    void completionTableAnalysisIsInvalidatedOnVersionChange() {
+        analysisFollowsTheTableVersion(table(1 << 20));
+    }
+
+    @Test
+    void searchedAnalysisIsInvalidatedOnVersionChange() {
+        analysisFollowsTheTableVersion(table(0));
+    }
+}